@@ -0,0 +1,87 @@
+package it.uniupo.bench;
+
+import it.uniupo.Data;
+import it.uniupo.Mode;
+import it.uniupo.stats.Aggregate;
+import it.uniupo.util.HistogramUtils;
+import org.HdrHistogram.Histogram;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The cost of folding the results of a run and of computing what the report prints from them.
+ *
+ * @author Lorenzo Ferron
+ * @version 2026.10.18
+ */
+@BenchmarkMode(org.openjdk.jmh.annotations.Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class AggregateBenchmark {
+
+    /**
+     * The number of executors of the run, half publishers and half subscribers
+     */
+    @Param({"10", "100", "1000"})
+    private int executors;
+
+    /**
+     * The number of distinct topics
+     */
+    @Param({"1", "10"})
+    private int topics;
+
+    private final List<Data> results = new ArrayList<>();
+
+    @Setup
+    public void setup() {
+        Random random = new Random(executors);
+        int publishers = executors / 2;
+        for (int i = 0; i < executors; i++) {
+            String topic = "/f3RR0n/topic" + i % topics;
+            Histogram histogram = HistogramUtils.create();
+            for (int j = 0; j < 1000; j++)
+                HistogramUtils.recordNanos(histogram, TimeUnit.MICROSECONDS.toNanos(100 + random.nextInt(50_000)));
+            if (i < publishers)
+                results.add(new Data(Mode.PUB, topic, i % 3, i, 10_000, 0, 10_000 * 64L, 0, 0, 30_000, histogram, 0, 0,
+                        Collections.emptyMap()));
+            else {
+                Map<Integer, Long> rcvMsgByPublisher = new HashMap<>();
+                for (int j = i % topics; j < publishers; j += topics)
+                    rcvMsgByPublisher.put(j, 10_000L);
+                long rcvMsg = 10_000L * rcvMsgByPublisher.size();
+                results.add(new Data(Mode.SUB, topic, i % 3, -1, 0, rcvMsg, 0, rcvMsg * 64, 0, 30_000, histogram, 0, 0,
+                        rcvMsgByPublisher));
+            }
+        }
+    }
+
+    /**
+     * Folds the results of one run and computes the tables of the report, as the aggregate of all runs.
+     */
+    @Benchmark
+    public void aggregate(Blackhole blackhole) {
+        Aggregate run = new Aggregate();
+        for (Data data : results) run.add(data);
+        Aggregate total = new Aggregate().merge(run);
+        blackhole.consume(total.getSendMsg());
+        blackhole.consume(total.getRcvMsg());
+        blackhole.consume(total.getAverageElapsedTime());
+        blackhole.consume(total.getAverageRTT());
+        blackhole.consume(total.getRtt());
+        blackhole.consume(total.getLatency());
+        blackhole.consume(total.getSequences());
+    }
+
+}
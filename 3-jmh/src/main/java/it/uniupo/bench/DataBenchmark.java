@@ -0,0 +1,57 @@
+package it.uniupo.bench;
+
+import it.uniupo.Data;
+import it.uniupo.util.HistogramUtils;
+import org.HdrHistogram.Histogram;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Collections;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The cost of the average RTT of an executor, which walks its histogram.
+ *
+ * @author Lorenzo Ferron
+ * @version 2026.10.18
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class DataBenchmark {
+
+    /**
+     * The number of RTTs recorded
+     */
+    @Param({"1000", "100000", "1000000"})
+    private int samples;
+
+    /**
+     * The highest RTT recorded in milliseconds: the wider the spread, the more buckets the histogram has
+     */
+    @Param({"10", "1000"})
+    private int spread;
+
+    private Data data;
+
+    @Setup
+    public void setup() {
+        Histogram rtt = HistogramUtils.create();
+        Random random = new Random(samples);
+        long highest = TimeUnit.MILLISECONDS.toNanos(spread);
+        for (int i = 0; i < samples; i++)
+            // skewed towards low values, as RTTs are
+            HistogramUtils.recordNanos(rtt, (long) (highest * Math.pow(random.nextDouble(), 4)));
+        data = new Data(it.uniupo.Mode.PUB, "/f3RR0n/topic", 1, 0, samples, 0, 0, 0, 0, 30_000, rtt, 0, 0,
+                Collections.emptyMap());
+    }
+
+    @Benchmark
+    public double getAverageRTT() {
+        return data.getAverageRTT();
+    }
+
+}
@@ -0,0 +1,98 @@
+package it.uniupo.bench;
+
+import it.uniupo.descriptors.Message;
+import it.uniupo.util.ByteUtils;
+import it.uniupo.util.PayloadPool;
+import it.uniupo.util.ProbeCodec;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The cost of building and reading a message with both encodings, as publishers and subscribers do for every message.
+ *
+ * @author Lorenzo Ferron
+ * @version 2026.10.18
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class EncodingBenchmark {
+
+    /**
+     * The length of the user payload in bytes
+     */
+    @Param({"16", "256", "4096"})
+    private int size;
+
+    private String payload;
+    private byte[] serialized;
+    private PayloadPool pool;
+    private byte[] probe;
+    private long sequence;
+
+    @Setup
+    public void setup() throws IOException {
+        char[] chars = new char[size];
+        Arrays.fill(chars, 'x');
+        payload = new String(chars);
+        serialized = ByteUtils.objToByte(new Message(payload, System.currentTimeMillis()));
+        pool = PayloadPool.of(payload);
+        probe = pool.allocate(pool.size(0));
+        ProbeCodec.encode(probe, 1, sequence, System.nanoTime(), true);
+    }
+
+    /**
+     * A publisher with the serializable encoding, which serializes a new message every time.
+     */
+    @Benchmark
+    public byte[] serializableEncode() throws IOException {
+        return ByteUtils.objToByte(new Message(payload, System.currentTimeMillis()));
+    }
+
+    /**
+     * A subscriber with the serializable encoding.
+     */
+    @Benchmark
+    public long serializableDecode() throws IOException, ClassNotFoundException {
+        return ((Message) ByteUtils.byteToObj(serialized)).getSendTime();
+    }
+
+    /**
+     * A publisher with the probe encoding, which stamps the header on the buffer of its slot.
+     */
+    @Benchmark
+    public byte[] probeEncode() {
+        ProbeCodec.encode(probe, 1, sequence++, System.nanoTime(), true);
+        return probe;
+    }
+
+    /**
+     * A publisher with the probe encoding when the size of the message changes, so its buffer is allocated again.
+     */
+    @Benchmark
+    public byte[] probeAllocateAndEncode() {
+        byte[] buffer = pool.allocate(pool.size(0));
+        ProbeCodec.encode(buffer, 1, sequence++, System.nanoTime(), true);
+        return buffer;
+    }
+
+    /**
+     * A subscriber with the probe encoding.
+     */
+    @Benchmark
+    public void probeDecode(Blackhole blackhole) {
+        if (ProbeCodec.isProbe(probe) && ProbeCodec.isMeasured(probe)) {
+            blackhole.consume(ProbeCodec.getPublisherId(probe));
+            blackhole.consume(ProbeCodec.getSequence(probe));
+            blackhole.consume(System.nanoTime() - ProbeCodec.getSendTime(probe));
+        }
+    }
+
+}
@@ -0,0 +1,53 @@
+package it.uniupo.bench;
+
+import it.uniupo.Mode;
+import it.uniupo.stats.ClientMetrics;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The cost of accounting a received message when several callback threads update the metrics of the same executor.
+ *
+ * @author Lorenzo Ferron
+ * @version 2026.10.18
+ */
+@BenchmarkMode(org.openjdk.jmh.annotations.Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class MetricsBenchmark {
+
+    private final ClientMetrics metrics = new ClientMetrics(0, Mode.SUB, "/f3RR0n/topic", 1);
+
+    /**
+     * Counts a message and records its latency, as a subscriber does.
+     */
+    @Benchmark
+    public void received() {
+        metrics.received(64);
+        metrics.recordLatency(250_000);
+    }
+
+    /**
+     * Reads the counters and the latencies while they are updated, as the sampler does.
+     */
+    @Benchmark
+    @Group("sampled")
+    @GroupThreads(3)
+    public void record() {
+        metrics.received(64);
+        metrics.recordLatency(250_000);
+    }
+
+    @Benchmark
+    @Group("sampled")
+    @GroupThreads(1)
+    public long sample() {
+        return metrics.getRcvMsg() + metrics.sample().getTotalCount();
+    }
+
+}
@@ -1,6 +1,11 @@
 import it.uniupo.App;
+import it.uniupo.distributed.Worker;
 import org.apache.commons.cli.*;
 
+import java.io.File;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
 /**
  * Entry point. Comments are not our strength.
  *
@@ -19,7 +24,15 @@ public class Main {
     public static final String NAME = "EnvQTT";
     private static final String DESCRIPTION = "A tool to benchmark a MQTT server";
 
+    // the MQTT 5 client logs every QoS 2 handshake at INFO level, kept referenced so that its level is not lost
+    private static final Logger PAHO_LOGGER = Logger.getLogger("org.eclipse.paho.mqttv5.client");
+
     public static void main(String[] args) {
+        // a logging configuration given by the user is left as it is
+        if (System.getProperty("java.util.logging.config.file") == null
+                && System.getProperty("java.util.logging.config.class") == null)
+            PAHO_LOGGER.setLevel(Level.WARNING);
+
         // create the Options
         Options options = new Options();
 
@@ -32,6 +45,116 @@ public class Main {
                 .build();
         options.addOption(verbose);
 
+        Option timeSeries = Option.builder("t")
+                .desc("Stream a time series of each run to FILE (CSV, or NDJSON if FILE ends with .ndjson)")
+                .hasArg()
+                .argName("FILE")
+                .longOpt("time-series")
+                .required(false)
+                .build();
+        options.addOption(timeSeries);
+
+        Option interval = Option.builder("i")
+                .desc("Sampling interval of the time series in milliseconds (default 1000)")
+                .hasArg()
+                .argName("MS")
+                .longOpt("interval")
+                .type(Number.class)
+                .required(false)
+                .build();
+        options.addOption(interval);
+
+        Option output = Option.builder("o")
+                .desc("Write the result as JSON to FILE (default result.json)")
+                .hasArg()
+                .argName("FILE")
+                .longOpt("output")
+                .required(false)
+                .build();
+        options.addOption(output);
+
+        Option baseline = Option.builder("b")
+                .desc("Compare the result with the one in FILE and exit with status 2 if it regressed")
+                .hasArg()
+                .argName("FILE")
+                .longOpt("baseline")
+                .required(false)
+                .build();
+        options.addOption(baseline);
+
+        Option threshold = Option.builder()
+                .desc("Tolerated worsening of throughput and p99 latencies from the baseline, in percent (default 10)")
+                .hasArg()
+                .argName("PCT")
+                .longOpt("threshold")
+                .type(Number.class)
+                .required(false)
+                .build();
+        options.addOption(threshold);
+
+        Option workers = Option.builder("w")
+                .desc("Coordinate N workers started with --worker instead of generating the load in this process")
+                .hasArg()
+                .argName("N")
+                .longOpt("workers")
+                .type(Number.class)
+                .required(false)
+                .build();
+        options.addOption(workers);
+
+        Option worker = Option.builder()
+                .desc("Run as a worker of a coordinator, only URI is required")
+                .hasArg(false)
+                .longOpt("worker")
+                .required(false)
+                .build();
+        options.addOption(worker);
+
+        Option embeddedBroker = Option.builder()
+                .desc("Start a minimal MQTT 3.1.1 and 5 broker on the loopback interface and benchmark it, URI is not required")
+                .hasArg(false)
+                .longOpt("embedded-broker")
+                .required(false)
+                .build();
+        options.addOption(embeddedBroker);
+
+        Option metrics = Option.builder("m")
+                .desc("Serve the live metrics in the Prometheus text format at http://127.0.0.1:PORT/metrics")
+                .hasArg()
+                .argName("PORT")
+                .longOpt("metrics-port")
+                .type(Number.class)
+                .required(false)
+                .build();
+        options.addOption(metrics);
+
+        Option trace = Option.builder()
+                .desc("Trace every publish, acknowledgement and receive to binary files in DIR")
+                .hasArg()
+                .argName("DIR")
+                .longOpt("trace")
+                .required(false)
+                .build();
+        options.addOption(trace);
+
+        Option analyzeTrace = Option.builder()
+                .desc("Analyse the trace in DIR written by --trace, only DIR is required")
+                .hasArg(false)
+                .longOpt("analyze-trace")
+                .required(false)
+                .build();
+        options.addOption(analyzeTrace);
+
+        Option stall = Option.builder()
+                .desc("Shortest gap reported as a stall by --analyze-trace, in milliseconds (default 50)")
+                .hasArg()
+                .argName("MS")
+                .longOpt("stall")
+                .type(Number.class)
+                .required(false)
+                .build();
+        options.addOption(stall);
+
         Option help = new Option("h", "help", false, "print this message");
         options.addOption(help);
 
@@ -53,10 +176,37 @@ public class Main {
                 System.out.println("Written by " + AUTHORS);
                 System.exit(0);
             }
+            if (line.hasOption("analyze-trace")) {
+                Number millis = (Number) line.getParsedOptionValue("stall");
+                App.analyzeTrace(new File(line.getArgs()[0]), millis == null ? 50 : millis.longValue());
+                System.exit(0);
+            }
+            int metricsPort = line.hasOption("metrics-port") ? ((Number) line.getParsedOptionValue("metrics-port")).intValue() : -1;
+            if (line.hasOption("worker")) {
+                try (Worker w = new Worker(line.getArgs()[0], metricsPort)) {
+                    w.serve();
+                }
+                System.exit(0);
+            }
             boolean isVerbose = line.hasOption("verbose");
+            if (line.hasOption("time-series")) {
+                Number millis = (Number) line.getParsedOptionValue("interval");
+                App.setTimeSeries(new File(line.getOptionValue("time-series")), millis == null ? 1000 : millis.longValue());
+            }
+            if (line.hasOption("output"))
+                App.setResultFile(new File(line.getOptionValue("output")));
+            if (line.hasOption("baseline")) {
+                Number percent = (Number) line.getParsedOptionValue("threshold");
+                App.setBaseline(new File(line.getOptionValue("baseline")), (percent == null ? 10 : percent.doubleValue()) / 100);
+            }
+            if (line.hasOption("workers"))
+                App.setWorkers(((Number) line.getParsedOptionValue("workers")).intValue());
+            App.setEmbeddedBroker(line.hasOption("embedded-broker"));
+            App.setMetricsPort(metricsPort);
+            if (line.hasOption("trace"))
+                App.setTraceDirectory(new File(line.getOptionValue("trace")));
             String[] resources = line.getArgs();
-            App.start(resources, isVerbose);
-            System.exit(0);
+            System.exit(App.start(resources, isVerbose) ? 0 : 2);
         } catch (ParseException exp) {
             // oops, something went wrong
             System.err.println("Parsing failed.  Reason: " + exp.getMessage());
@@ -71,7 +221,7 @@ public class Main {
     }
 
     private static void usage(HelpFormatter formatter, Options options, int exitsStatus) {
-        formatter.printHelp("ENV_FILE URI", DESCRIPTION, options, null, true);
+        formatter.printHelp("ENV_FILE URI | ENV_FILE --embedded-broker | --worker URI | --analyze-trace DIR", DESCRIPTION, options, null, true);
         System.exit(exitsStatus);
     }
 
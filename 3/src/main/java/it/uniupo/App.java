@@ -1,10 +1,26 @@
 package it.uniupo;
 
 import com.google.gson.Gson;
+import it.uniupo.broker.EmbeddedBroker;
+import it.uniupo.descriptors.Encoding;
 import it.uniupo.descriptors.Environment;
-import it.uniupo.descriptors.Executor;
-import it.uniupo.mqttv3.Mode;
-import it.uniupo.mqttv3.MqttV3Executor;
+import it.uniupo.distributed.Coordinator;
+import it.uniupo.engine.Engine;
+import it.uniupo.engine.ResourceUsage;
+import it.uniupo.engine.Sampler;
+import it.uniupo.engine.SimulatedClient;
+import it.uniupo.report.Baseline;
+import it.uniupo.report.MetricsEndpoint;
+import it.uniupo.report.Result;
+import it.uniupo.search.SaturationSearch;
+import it.uniupo.stats.Aggregate;
+import it.uniupo.storm.ConnectionStorm;
+import it.uniupo.trace.TraceAnalysis;
+import it.uniupo.trace.TraceReader;
+import it.uniupo.trace.Tracer;
+import it.uniupo.util.HistogramUtils;
+import org.HdrHistogram.Histogram;
+import org.eclipse.paho.client.mqttv3.MqttException;
 import org.everit.json.schema.Schema;
 import org.everit.json.schema.loader.SchemaLoader;
 import org.json.JSONObject;
@@ -17,12 +33,9 @@ import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
+import java.text.DecimalFormat;
 import java.util.*;
-import java.util.concurrent.BrokenBarrierException;
-import java.util.concurrent.CopyOnWriteArrayList;
-import java.util.concurrent.CyclicBarrier;
-import java.util.stream.Collectors;
-import java.util.stream.IntStream;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Main class.
@@ -32,83 +45,482 @@ import java.util.stream.IntStream;
  */
 public class App {
 
-    private final static String PARENT_LEVEL = "/f3RR0n";
-
     private static boolean verbosity;
     private static Environment env;
     private static String hostURI;
+    private static File timeSeries;
+    private static long sampleInterval;
+    private static File resultFile = new File("result.json");
+    private static File baselineFile;
+    private static double threshold;
+    private static int workers;
+    private static boolean embeddedBroker;
+    private static int metricsPort = -1;
+    private static File traceDirectory;
+
+    /**
+     * Streams a time series of each run to a file while it is going on.
+     *
+     * @param file     the CSV or NDJSON file
+     * @param interval the sampling interval in milliseconds
+     */
+    public static void setTimeSeries(File file, long interval) {
+        timeSeries = file;
+        sampleInterval = interval;
+    }
+
+    /**
+     * Runs the benchmark on remote workers instead of this process.
+     *
+     * @param count the number of workers to wait for
+     */
+    public static void setWorkers(int count) {
+        workers = count;
+    }
+
+    /**
+     * Runs the benchmark against a broker started in this process, instead of the one at the given URI.
+     *
+     * @param embedded whether to start the embedded broker
+     */
+    public static void setEmbeddedBroker(boolean embedded) {
+        embeddedBroker = embedded;
+    }
+
+    /**
+     * Serves the live metrics of the runs in the Prometheus text format.
+     *
+     * @param port the local port of the endpoint, -1 not to serve them
+     */
+    public static void setMetricsPort(int port) {
+        metricsPort = port;
+    }
+
+    /**
+     * Traces every publish, acknowledgement and receive of the executors, see {@link Tracer}.
+     *
+     * @param directory the directory of the trace files, {@code null} not to trace
+     */
+    public static void setTraceDirectory(File directory) {
+        traceDirectory = directory;
+    }
+
+    /**
+     * @param file the JSON file the result of the benchmark is written to
+     */
+    public static void setResultFile(File file) {
+        resultFile = file;
+    }
+
+    /**
+     * Compares the result of the benchmark with a stored one.
+     *
+     * @param file      a JSON result written by a previous benchmark
+     * @param tolerance the tolerated worsening of throughput and p99 latencies, as a fraction of the baseline value
+     */
+    public static void setBaseline(File file, double tolerance) {
+        baselineFile = file;
+        threshold = tolerance;
+    }
 
-    public static void start(String[] resources, boolean isVerbose) throws IOException, BrokenBarrierException, InterruptedException {
+    /**
+     * @param resources the environment file and the broker URI, which is not needed with the embedded broker
+     * @param isVerbose
+     * @return {@code false} if the result regressed from the baseline, {@code true} otherwise
+     * @throws IOException
+     * @throws InterruptedException
+     */
+    public static boolean start(String[] resources, boolean isVerbose) throws IOException, InterruptedException {
         verbosity = isVerbose;
-        if (!loadResources(resources)) return;
-        int nExecutors = env.getConfigs().stream().mapToInt(Executor::getSize).sum();
-        CyclicBarrier gate = new CyclicBarrier(nExecutors + 1);
-        List<Thread> batch = new ArrayList<>(nExecutors);
-        List<List<Data>> results = new ArrayList<>();
-        for (int i = 0; i < env.getRunCount(); i++) {
-            List<Data> localResults = new CopyOnWriteArrayList<>();
-            for (Executor config : env.getConfigs()) {
-                int bound = config.getSize();
-                IntStream.range(0, bound).mapToObj(j -> new Thread(() -> {
-                    MqttV3Executor v3Executor = new MqttV3Executor(config.getQos(), PARENT_LEVEL + config.getTopic(), config.getPayload(), env.getTimeout(), hostURI);
-                    v3Executor.execute(gate);
-                    localResults.add(v3Executor.getResults());
-                })).forEachOrdered(t -> {
-                    batch.add(t);
-                    t.start();
-                });
+        if (!loadResources(resources)) return true;
+        // read it first, so a wrong file fails before the benchmark and not after
+        Baseline baseline = baselineFile == null ? null : new Baseline(Result.read(baselineFile), threshold);
+        if (env.getStorm() != null && workers > 0)
+            throw new IllegalArgumentException("A connection storm runs on a single process");
+        if (env.getSearch() != null && (workers > 0 || env.getStorm() != null))
+            throw new IllegalArgumentException("A saturation search runs the configs on a single process");
+        if (traceDirectory != null && (workers > 0 || env.getStorm() != null))
+            throw new IllegalArgumentException("Events are traced only when the configs run in this process");
+        List<Aggregate> runs = new ArrayList<>();
+        List<ConnectionStorm.Outcome> storms = new ArrayList<>();
+        List<SaturationSearch.Outcome> searches = new ArrayList<>();
+        List<ResourceUsage> usages = new ArrayList<>();
+        try (EmbeddedBroker broker = embeddedBroker ? new EmbeddedBroker() : null) {
+            if (broker != null) {
+                hostURI = broker.getURI();
+                System.out.println("Embedded broker listening on " + hostURI);
+                System.out.println();
             }
-            gate.await();
-            for (Thread t : batch) t.join();
-            results.add(localResults);
+            if (env.getStorm() != null)
+                runStorms(storms);
+            else if (env.getSearch() != null)
+                runSearches(searches, usages);
+            else if (workers > 0)
+                try (Coordinator coordinator = new Coordinator(hostURI, workers)) {
+                    coordinator.run(env, runs, usages);
+                }
+            else
+                runLocally(runs, usages);
         }
         // print results
-        printResults(results);
+        Result result = new Result(hostURI, env);
+        if (env.getStorm() != null)
+            printStorms(storms, result);
+        else if (env.getSearch() != null) {
+            printSearches(searches, result);
+            printUsages(usages, result);
+        } else {
+            printResults(runs, result);
+            printUsages(usages, result);
+        }
+        result.write(resultFile);
+        System.out.println("Result written to " + resultFile);
+        return baseline == null || printComparison(baseline.compare(result));
+    }
+
+    private static void runLocally(List<Aggregate> runs, List<ResourceUsage> usages) throws IOException, InterruptedException {
+        try (Engine engine = new Engine();
+             Tracer tracer = openTracer();
+             Sampler sampler = timeSeries == null ? null : new Sampler(timeSeries, sampleInterval)) {
+            engine.setTracer(tracer);
+            MetricsEndpoint endpoint = openEndpoint(engine);
+            try {
+                runAll(engine, sampler, runs, usages);
+            } finally {
+                if (endpoint != null) endpoint.close();
+            }
+        }
+    }
+
+    /**
+     * Runs all the runs of the environment as it is configured now, measuring the footprint of the first run ever.
+     * With reused connections the fleet is opened once, and the runs are measurement windows separated by a quiesce.
+     */
+    private static void runAll(Engine engine, Sampler sampler, List<Aggregate> runs, List<ResourceUsage> usages)
+            throws IOException, InterruptedException {
+        Fleet factory = new Fleet(env, hostURI, 0);
+        List<SimulatedClient> fleet = null;
+        for (int i = 0; i < env.getRunCount(); i++) {
+            if (fleet == null) {
+                Engine.Footprint footprint = usages.isEmpty() ? new Engine.Footprint() : null;
+                fleet = factory.create(engine);
+                engine.open(fleet, env.getRampUp(), TimeUnit.SECONDS);
+                if (footprint != null) {
+                    footprint.measure(fleet.size());
+                    System.out.println("Connected " + footprint);
+                    System.out.println();
+                }
+            }
+            usages.add(engine.run(fleet, env.getRampUp(), env.getWarmup(), env.getTimeout(), TimeUnit.SECONDS, sampler));
+            if (env.isReuseConnections()) {
+                if (!engine.quiesce(fleet, env.getQuiesce(), TimeUnit.SECONDS))
+                    System.out.println("Run " + (i + 1) + ": messages still in flight after the quiesce");
+                engine.reset(fleet);
+            } else
+                engine.close(fleet);
+            runs.add(Fleet.aggregate(fleet));
+            if (!env.isReuseConnections()) fleet = null;
+        }
+        if (fleet != null) engine.close(fleet);
+    }
+
+    private static void runSearches(List<SaturationSearch.Outcome> searches, List<ResourceUsage> usages)
+            throws IOException, InterruptedException {
+        SaturationSearch search = new SaturationSearch(env);
+        try (Engine engine = new Engine();
+             Tracer tracer = openTracer();
+             Sampler sampler = timeSeries == null ? null : new Sampler(timeSeries, sampleInterval)) {
+            engine.setTracer(tracer);
+            MetricsEndpoint endpoint = openEndpoint(engine);
+            try {
+                for (int qos : search.getQosLevels())
+                    searches.add(search.run(qos, () -> {
+                        List<Aggregate> runs = new ArrayList<>();
+                        runAll(engine, sampler, runs, usages);
+                        return runs;
+                    }, probe -> System.out.printf("QoS %d at %.1f msg/s: published %.1f msg/s, unsent %d, p99 %.3f ms, "
+                                    + "loss %.3f%%, %s%n", probe.getQos(), probe.getOfferedRate(), probe.getPublishRate(),
+                            probe.getUnsentMsg(), probe.getP99(), probe.getLoss() * 100,
+                            probe.isSustainable() ? "sustained" : "not sustained")));
+            } finally {
+                if (endpoint != null) endpoint.close();
+            }
+            System.out.println();
+        }
+    }
+
+    private static void runStorms(List<ConnectionStorm.Outcome> storms) throws IOException, InterruptedException {
+        try (Engine engine = new Engine()) {
+            MetricsEndpoint endpoint = openEndpoint(engine);
+            try {
+                for (int i = 0; i < env.getRunCount(); i++)
+                    storms.add(new ConnectionStorm(env.getStorm(), hostURI, engine).run(env.getTimeout(), TimeUnit.SECONDS));
+            } finally {
+                if (endpoint != null) endpoint.close();
+            }
+        } catch (MqttException e) {
+            throw new IOException(e);
+        }
+    }
+
+    /**
+     * @param engine the engine whose metrics are served
+     * @return the metrics endpoint, {@code null} if it was not asked for
+     * @throws IOException if its port cannot be bound
+     */
+    private static MetricsEndpoint openEndpoint(Engine engine) throws IOException {
+        if (metricsPort < 0) return null;
+        MetricsEndpoint endpoint = new MetricsEndpoint(metricsPort, engine.getMetrics());
+        System.out.println("Metrics served at " + endpoint.getURL());
+        System.out.println();
+        return endpoint;
+    }
+
+    private static void printStorms(List<ConnectionStorm.Outcome> storms, Result result) {
+        ConnectionStorm.Outcome total = ConnectionStorm.Outcome.empty();
+        System.out.printf("%-15s %-15s %-15s %-15s %-15s %-15s %-15s %-15s %-20s %n%n", "attempts", "connected",
+                "connFailures", "subscribed", "subFailures", "dropped", "peak", "sustained", "connRate (conn/s)");
+        for (ConnectionStorm.Outcome storm : storms) {
+            result.getStorms().add(new Result.Storm(storm));
+            if (verbosity) printStorm(storm);
+            total.merge(storm);
+        }
+        if (verbosity)
+            System.out.println("\n" + String.join("", Collections.nCopies(15 * 8 + 20 + 8, "+")));
+        printStorm(total);
+        result.setStormAggregate(new Result.Storm(total));
+        Map<String, Histogram> handshakes = new LinkedHashMap<>();
+        handshakes.put("CONNECT-CONNACK", total.getConnack());
+        if (env.getStorm().getTopic() != null) handshakes.put("SUBSCRIBE-SUBACK", total.getSuback());
+        printPercentiles("Handshake", "average (ms)", handshakes);
+    }
+
+    /**
+     * @return the tracer, {@code null} if tracing was not asked for
+     * @throws IOException if the trace directory cannot be used
+     */
+    private static Tracer openTracer() throws IOException {
+        if (traceDirectory == null) return null;
+        Tracer tracer = new Tracer(traceDirectory);
+        System.out.println("Tracing events to " + tracer.getDirectory());
+        System.out.println();
+        return tracer;
+    }
+
+    /**
+     * Analyses offline a trace written by a previous benchmark: rates and latencies second by second, stalls and
+     * outlying executors.
+     *
+     * @param directory the directory of the trace files
+     * @param stall     the shortest gap reported as a stall, in milliseconds
+     * @throws IOException if the trace cannot be read
+     */
+    public static void analyzeTrace(File directory, long stall) throws IOException {
+        TraceAnalysis analysis;
+        try (TraceReader reader = new TraceReader(directory)) {
+            analysis = new TraceAnalysis(reader, stall, TimeUnit.MILLISECONDS);
+        }
+        System.out.printf("Trace of %d files: %d runs, %d publishes, %d acks and %d receives over %.3f s%n%n",
+                analysis.getFiles(), analysis.getRuns(), analysis.getEvents(Tracer.PUBLISH),
+                analysis.getEvents(Tracer.ACK), analysis.getEvents(Tracer.RECEIVE), analysis.getDuration());
+        System.out.printf("%-10s %-6s %-12s %-12s %-12s %-15s %-15s %-15s %-15s %-15s %-15s %-15s %n%n", "time (s)",
+                "run", "publish/s", "ack/s", "receive/s", "RTT p50 (ms)", "RTT p99 (ms)", "RTT max (ms)",
+                "lat. p50 (ms)", "lat. p99 (ms)", "lat. max (ms)", "lag max (ms)");
+        for (TraceAnalysis.Second second : analysis.getSeconds()) {
+            double[] rtt = second.getRtt();
+            double[] latency = second.getLatency();
+            System.out.printf("%-10d %-6s %-12d %-12d %-12d %-15.3f %-15.3f %-15.3f %-15.3f %-15.3f %-15.3f %-15.3f %n",
+                    second.getIndex(), second.getRun() < 0 ? "-" : String.valueOf(second.getRun() + 1),
+                    second.getPublishes(), second.getAcks(), second.getReceives(), rtt[1], rtt[2], rtt[3],
+                    latency[1], latency[2], latency[3], second.getMaxLag());
+        }
+        System.out.println();
+        if (analysis.getStalls().isEmpty())
+            System.out.println("No stall of " + stall + " ms or more");
+        else {
+            System.out.printf("%-20s %-15s %-15s %n", "Stall at (s)", "length (ms)", "outstanding");
+            analysis.getStalls().forEach(s -> System.out.printf("%-20.3f %-15.3f %-15d %n", s.getStart(),
+                    s.getLength(), s.getOutstanding()));
+        }
+        System.out.println();
+        if (analysis.getOutliers().isEmpty())
+            System.out.println("No executor with a p99 over " + TraceAnalysis.OUTLIER_FACTOR + " times the median of its role");
+        else {
+            System.out.printf("%-20s %-15s %-15s %-15s %-15s %-15s %-15s %n", "Outlier executor", "role", "count",
+                    "p50 (ms)", "p99 (ms)", "max (ms)", "median p99 (ms)");
+            analysis.getOutliers().forEach(o -> System.out.printf("%-20d %-15s %-15d %-15.3f %-15.3f %-15.3f %-15.3f %n",
+                    o.getExecutor(), o.getRole(), o.getCount(), o.getP50(), o.getP99(), o.getMax(), o.getMedianP99()));
+        }
+        System.out.println();
+    }
+
+    private static void printSearches(List<SaturationSearch.Outcome> searches, Result result) {
+        System.out.printf("%-10s %-20s %-20s %-15s %-15s %-15s %n%n", "QoS", "maxRate (msg/s)", "published (msg/s)",
+                "p99 (ms)", "loss", "probes");
+        for (SaturationSearch.Outcome search : searches) {
+            result.getSearches().add(new Result.Search(search));
+            SaturationSearch.Probe best = search.getBest();
+            if (best == null)
+                System.out.printf("%-10d %-20s %-20s %-15s %-15s %-15d %n", search.getQos(), "none", "-", "-", "-",
+                        search.getProbes().size());
+            else
+                System.out.printf("%-10d %-20.1f %-20.1f %-15.3f %-15s %-15d %n", search.getQos(), search.getMaxRate(),
+                        best.getPublishRate(), best.getP99(), String.format("%.3f%%", best.getLoss() * 100),
+                        search.getProbes().size());
+        }
+        System.out.println();
+    }
+
+    private static void printStorm(ConnectionStorm.Outcome storm) {
+        System.out.printf("%-15d %-15d %-15d %-15d %-15d %-15d %-15d %-15d %-20.3f %n", storm.getAttempts(),
+                storm.getConnected(), storm.getConnectFailures(), storm.getSubscribed(), storm.getSubscribeFailures(),
+                storm.getDropped(), storm.getPeakConnections(), storm.getSustainedConnections(), storm.getConnectionRate());
     }
 
-    private static void printResults(List<List<Data>> results) {
-        long totSendMsg = 0;
-        long totRcvMsg = 0;
-        long totLostMsg = 0;
-        Map<Integer, Double> totAverageRTT = new HashMap<>();
+    private static void printResults(List<Aggregate> runs, Result result) {
+        Aggregate total = new Aggregate();
         double totAverageElapsedTime = 0;
         double totSpeedRate = 0;
-        int nQos = results.get(0).stream().filter(data -> data.getMode() == Mode.PUB).collect(Collectors.groupingBy(Data::getQos)).size();
+        double totByteRate = 0;
+        int nQos = runs.get(0).getAverageRTT().size();
         int offset = 25 * nQos;
-        System.out.printf("%-30s %-30s %-30s %-" + (offset + nQos - 1) + ".30s %-30.30s %-30.30s %n%n", "sendMsg", "rcvMsg", "lostMsg*", "averageRTT (ms)", "averageElapsedTime (s)", "speedRate (msg/s)");
-        for (List<Data> run : results) {
-            long sendMsg = run.stream().mapToLong(Data::getSendMsg).sum();
-            totSendMsg += sendMsg;
-            long rcvMsg = run.stream().mapToLong(Data::getRcvMsg).sum();
-            totRcvMsg += rcvMsg;
-            long lostMsg = 0;
-            for (Map.Entry<String, Long> entry : run.stream().collect(Collectors.groupingBy(Data::getTopic, Collectors.summingLong(Data::getSendMsg))).entrySet()) {
-                String topic = entry.getKey();
-                Long sum = entry.getValue();
-                lostMsg += sum * run.stream().filter(foo -> foo.getTopic().equals(topic) && foo.getMode() == Mode.SUB).count() - run.stream().filter(foo -> foo.getTopic().equals(topic) && foo.getMode() == Mode.SUB).mapToLong(Data::getRcvMsg).sum();
-            }
-            totLostMsg += lostMsg;
-            Map<Integer, Double> averageRTT = run.stream().filter(foo -> foo.getMode() == Mode.PUB).collect(Collectors.groupingBy(Data::getQos, Collectors.averagingDouble(Data::getAverageRTT)));
-            averageRTT.forEach((key, value) -> totAverageRTT.merge(key, value, (v1, v2) -> totAverageRTT.get(key) + value));
-            double averageElapsedTime = run.stream().mapToDouble(Data::getElapsedTime).average().orElse(0) / 1000;
+        System.out.printf("%-30s %-30s %-30s %-" + (offset + nQos - 1) + ".30s %-30.30s %-30.30s %-30.30s %n%n", "sendMsg", "rcvMsg", "lostMsg*", "averageRTT (ms)", "averageElapsedTime (s)", "speedRate (msg/s)", "byteRate (B/s)");
+        for (Aggregate run : runs) {
+            double averageElapsedTime = run.getAverageElapsedTime() / 1000;
             totAverageElapsedTime += averageElapsedTime;
-            double speedRate = rcvMsg / averageElapsedTime;
+            double speedRate = run.getRcvMsg() / averageElapsedTime;
             totSpeedRate += speedRate;
+            double byteRate = run.getRcvBytes() / averageElapsedTime;
+            totByteRate += byteRate;
+            result.getRuns().add(summarize(run, averageElapsedTime, speedRate, byteRate));
             if (verbosity) {
-                System.out.printf("%-30d %-30d %-30d ", sendMsg, rcvMsg, lostMsg);
-                averageRTT.entrySet().stream()
-                        .sorted(Map.Entry.comparingByKey())
-                        .forEach(e -> System.out.printf("%-25.20s ", "QoS " + e.getKey() + ": " + e.getValue()));
-                System.out.printf("%-30.10f %-30.10f %n", averageElapsedTime, speedRate);
+                System.out.printf("%-30d %-30d %-30d ", run.getSendMsg(), run.getRcvMsg(), getLostMsg(run));
+                run.getAverageRTT().forEach((qos, averageRTT) -> System.out.printf("%-25.20s ", "QoS " + qos + ": " + averageRTT));
+                System.out.printf("%-30.10f %-30.10f %-30.3f %n", averageElapsedTime, speedRate, byteRate);
             }
+            total.merge(run);
         }
         if (verbosity)
-            System.out.println("\n" + String.join("", Collections.nCopies(30 * 5 + (offset + nQos - 1), "+")));
-        System.out.printf("%-30d %-30d %-30d ", totSendMsg, totRcvMsg, totLostMsg);
-        totAverageRTT.entrySet().stream()
-                .sorted(Map.Entry.comparingByKey())
-                .forEach(e -> System.out.printf("%-25.20s ", "QoS " + e.getKey() + ": " + e.getValue() / results.size()));
-        System.out.printf("%-30.10f %-30.10f %n", totAverageElapsedTime / results.size(), totSpeedRate / results.size());
+            System.out.println("\n" + String.join("", Collections.nCopies(30 * 6 + (offset + nQos - 1), "+")));
+        System.out.printf("%-30d %-30d %-30d ", total.getSendMsg(), total.getRcvMsg(), getLostMsg(total));
+        total.getAverageRTT().forEach((qos, averageRTT) -> System.out.printf("%-25.20s ", "QoS " + qos + ": " + averageRTT));
+        System.out.printf("%-30.10f %-30.10f %-30.3f %n", totAverageElapsedTime / runs.size(), totSpeedRate / runs.size(), totByteRate / runs.size());
+        System.out.println();
+        if (total.getSendMsg() > 0)
+            System.out.printf("Published %d B on the wire, %.1f B of MQTT headers per message%n%n", total.getSendWireBytes(),
+                    (total.getSendWireBytes() - total.getSendBytes()) / (double) total.getSendMsg());
+        result.setAggregate(summarize(total, totAverageElapsedTime / runs.size(), totSpeedRate / runs.size(), totByteRate / runs.size()));
+        printPercentiles("QoS", "averageRTT (ms)", total.getRtt());
+        printPercentiles("Topic (subscription QoS)", "averageLatency (ms)", total.getLatency());
+        if (total.isLatencyDropped())
+            System.out.printf("%nEnd-to-end latency left out: publishers and subscribers ran on different hosts%n");
+        Map<String, Aggregate.Spread> spreads = total.getSpreads();
+        if (!spreads.isEmpty()) {
+            System.out.printf("%n%-30s %-15s %-15s %-15s %-15s %-15s %n", "Share group (subscription QoS)", "members",
+                    "rcvMsg", "min/member", "max/member", "variation");
+            spreads.forEach((key, spread) -> System.out.printf("%-30.30s %-15d %-15d %-15d %-15d %-15s %n", key,
+                    spread.getMembers(), spread.getRcvMsg(), spread.getMinMsg(), spread.getMaxMsg(),
+                    String.format("%.1f%%", spread.getVariation() * 100)));
+            System.out.println();
+        }
+        if (env.getEncoding() == Encoding.PROBE) {
+            Map<String, long[]> sequences = total.getSequences();
+            if (sequences.isEmpty()) return;
+            System.out.printf("%n%-30s %-15s %-15s %-15s %-15s %-15s %n", "Topic (subscription QoS)", "rcvMsg", "lostMsg", "dupMsg", "reorderedMsg", "lateMsg");
+            sequences.forEach((key, counts) -> System.out.printf("%-30.30s %-15d %-15d %-15d %-15d %-15d %n", key, counts[0], counts[1], counts[2], counts[3], counts[4]));
+            System.out.println();
+        }
+    }
+
+    /**
+     * @param aggregate the results of one or more runs
+     * @return the lost messages, exact from the sequence numbers with the probe encoding, estimated otherwise
+     */
+    private static long getLostMsg(Aggregate aggregate) {
+        return aggregate.getLostMsg(env.getEncoding());
+    }
+
+    private static Result.Summary summarize(Aggregate aggregate, double elapsedTime, double throughput, double byteRate) {
+        Result.Summary summary = new Result.Summary();
+        summary.setSendMsg(aggregate.getSendMsg());
+        summary.setRcvMsg(aggregate.getRcvMsg());
+        summary.setSendBytes(aggregate.getSendBytes());
+        summary.setSendWireBytes(aggregate.getSendWireBytes());
+        summary.setRcvBytes(aggregate.getRcvBytes());
+        summary.setLostMsg(getLostMsg(aggregate));
+        if (env.getEncoding() == Encoding.PROBE)
+            aggregate.getSequences().values().forEach(counts -> {
+                summary.setDupMsg(summary.getDupMsg() + counts[2]);
+                summary.setReorderedMsg(summary.getReorderedMsg() + counts[3]);
+                summary.setLateMsg(summary.getLateMsg() + counts[4]);
+            });
+        summary.setElapsedTime(elapsedTime);
+        summary.setThroughput(throughput);
+        summary.setByteRate(byteRate);
+        aggregate.getRtt().forEach((qos, histogram) -> summary.getRtt().put(String.valueOf(qos), new Result.Latency(histogram)));
+        aggregate.getLatency().forEach((key, histogram) -> summary.getLatency().put(key, new Result.Latency(histogram)));
+        aggregate.getSpreads().forEach((key, spread) -> summary.getShares().put(key, new Result.Share(spread)));
+        return summary;
+    }
+
+    /**
+     * @param checks the metrics compared with the baseline
+     * @return {@code false} if any of them regressed
+     */
+    private static boolean printComparison(List<Baseline.Check> checks) {
+        System.out.printf("%n%-40s %-15s %-15s %-15s %n", "Baseline comparison", "baseline", "current", "change");
+        boolean passed = true;
+        for (Baseline.Check check : checks) {
+            System.out.printf("%-40.40s %-15.3f %-15.3f %-15s %s%n", check.getName(), check.getBaseline(),
+                    check.getCurrent(), String.format("%+.1f%%", check.getChange() * 100), check.isRegression() ? "REGRESSION" : "");
+            passed &= !check.isRegression();
+        }
+        System.out.println();
+        System.out.println(passed ? "No regression from the baseline" : "Regression from the baseline beyond " + threshold * 100 + "%");
+        return passed;
+    }
+
+    private static void printUsages(List<ResourceUsage> usages, Result result) {
+        if (usages.isEmpty()) return;
+        System.out.printf("%-15s %-15s %-15s %-15s %-15s %-20s %-15s %-15s %n", "Generator", "CPU usage",
+                "CPU time (s)", "GC count", "GC time (ms)", "alloc rate (MB/s)", "threads", "Paho threads");
+        for (int i = 0; i < usages.size(); i++) {
+            ResourceUsage usage = usages.get(i);
+            double allocationRate = usage.getAllocationRate();
+            System.out.printf("%-15s %-15s %-15.3f %-15d %-15d %-20s %-15d %-15d %n", "Run " + (i + 1),
+                    String.format("%.1f%%", usage.getCpuUsage() * 100), usage.getCpuTime() / 1e9, usage.getGcCount(),
+                    usage.getGcTime(), allocationRate < 0 ? "n/a" : String.format("%.3f", allocationRate / 1e6),
+                    usage.getThreads(), usage.getPahoThreads());
+            result.getGenerator().add(new Result.Generator(usage));
+        }
+        System.out.printf("Generator CPU usage: %.1f%% on average, %.1f%% at most of %d processors%n",
+                usages.stream().mapToDouble(ResourceUsage::getCpuUsage).average().orElse(0) * 100,
+                usages.stream().mapToDouble(ResourceUsage::getCpuUsage).max().orElse(0) * 100,
+                usages.get(0).getProcessors());
+        for (int i = 0; i < usages.size(); i++) {
+            ResourceUsage usage = usages.get(i);
+            if (usage.isCpuBound())
+                System.out.printf("WARNING: run %d: generator CPU usage %.1f%% above %.0f%%, the results may measure the generator and not the broker%n",
+                        i + 1, usage.getCpuUsage() * 100, ResourceUsage.CPU_THRESHOLD * 100);
+            if (usage.isGcBound())
+                System.out.printf("WARNING: run %d: generator GC took %.1f%% of the measurement window, above %.0f%%, the results may measure the generator and not the broker%n",
+                        i + 1, usage.getGcShare() * 100, ResourceUsage.GC_THRESHOLD * 100);
+        }
+        System.out.println();
+    }
+
+    private static void printPercentiles(String keyName, String averageName, Map<?, Histogram> histograms) {
+        if (histograms.isEmpty()) return;
+        System.out.printf("%n%-30s %-15s %-20s ", keyName, "count", averageName);
+        for (double percentile : HistogramUtils.PERCENTILES)
+            System.out.printf("%-15s ", "p" + new DecimalFormat("0.#").format(percentile) + " (ms)");
+        System.out.printf("%-15s %n", "max (ms)");
+        histograms.forEach((key, histogram) -> {
+            System.out.printf("%-30.30s %-15d %-20.6f ", key, histogram.getTotalCount(), HistogramUtils.meanMillis(histogram));
+            for (double percentile : HistogramUtils.PERCENTILES)
+                System.out.printf("%-15.3f ", HistogramUtils.percentileMillis(histogram, percentile));
+            System.out.printf("%-15.3f %n", HistogramUtils.maxMillis(histogram));
+        });
         System.out.println();
     }
 
@@ -139,7 +551,7 @@ public class App {
             br.reset();
             env = gson.fromJson(br, Environment.class);
         }
-        hostURI = resources[1];
+        hostURI = embeddedBroker ? null : resources[1];
         return true;
     }
 
@@ -1,91 +1,185 @@
 package it.uniupo;
 
-import it.uniupo.mqttv3.Mode;
+import it.uniupo.util.HistogramUtils;
+import org.HdrHistogram.Histogram;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Collections;
+import java.util.Map;
 
 /**
- * Data result.
+ * Data result: an immutable snapshot of the metrics of an executor (see {@link it.uniupo.stats.ClientMetrics}).
  *
  * @author Lorenzo Ferron
  * @version 2020.02.20
  */
 public class Data {
 
-    private Mode mode;
-    private String topic;
-    private int qos;
-    private long sendMsg;
-    private long rcvMsg;
-    private long elapsedTime;
-    private List<Long> rtts = new ArrayList<>(0);
-
-    public Data() {
-        // Empty body...
-    }
+    // the histogram of the other mode, never written
+    private static final Histogram EMPTY = HistogramUtils.create();
+
+    private final Mode mode;
+    private final String topic;
+    private final int qos;
+    private final int publisherId;
+    private final long sendMsg;
+    private final long rcvMsg;
+    private final long sendBytes;
+    private final long rcvBytes;
+    private final long sendWireBytes;
+    private final long elapsedTime;
+    private final Histogram histogram;
+    private final long dupMsg;
+    private final long reorderedMsg;
+    private final long lateMsg;
+    private final Map<Integer, Long> rcvMsgByPublisher;
+    private final long unsentMsg;
 
     public Data(String topic, long sendMsg, long rcvMsg, long elapsedTime, Mode mode) {
+        this(mode, topic, 0, -1, sendMsg, rcvMsg, 0, 0, 0, elapsedTime, HistogramUtils.create(), 0, 0, 0,
+                Collections.emptyMap(), 0);
+    }
+
+    /**
+     * @param mode
+     * @param topic
+     * @param qos
+     * @param publisherId       the id stamped by the publisher on its messages, -1 for subscribers
+     * @param sendMsg
+     * @param rcvMsg
+     * @param sendBytes
+     * @param rcvBytes
+     * @param sendWireBytes     the size of the PUBLISH packets sent, headers included
+     * @param elapsedTime
+     * @param histogram         the RTT histogram for publishers, the end-to-end latency one for subscribers, in
+     *                          microseconds
+     * @param dupMsg
+     * @param reorderedMsg
+     * @param lateMsg           the messages received too late to tell whether they were unique, see
+     *                          {@link it.uniupo.stats.SequenceTracker}
+     * @param rcvMsgByPublisher
+     * @param unsentMsg         the messages a publisher was due to send in the measurement window and did not
+     */
+    public Data(Mode mode, String topic, int qos, int publisherId, long sendMsg, long rcvMsg, long sendBytes,
+                long rcvBytes, long sendWireBytes, long elapsedTime, Histogram histogram, long dupMsg,
+                long reorderedMsg, long lateMsg, Map<Integer, Long> rcvMsgByPublisher, long unsentMsg) {
+        this.mode = mode;
         this.topic = topic;
+        this.qos = qos;
+        this.publisherId = publisherId;
         this.sendMsg = sendMsg;
         this.rcvMsg = rcvMsg;
+        this.sendBytes = sendBytes;
+        this.rcvBytes = rcvBytes;
+        this.sendWireBytes = sendWireBytes;
         this.elapsedTime = elapsedTime;
-        this.mode = mode;
+        this.histogram = histogram;
+        this.dupMsg = dupMsg;
+        this.reorderedMsg = reorderedMsg;
+        this.lateMsg = lateMsg;
+        this.rcvMsgByPublisher = Collections.unmodifiableMap(rcvMsgByPublisher);
+        this.unsentMsg = unsentMsg;
     }
 
     public String getTopic() {
         return topic;
     }
 
-    public void setTopic(String topic) {
-        this.topic = topic;
-    }
-
     public long getSendMsg() {
         return sendMsg;
     }
 
-    public void setSendMsg(long sendMsg) {
-        this.sendMsg = sendMsg;
-    }
-
     public long getRcvMsg() {
         return rcvMsg;
     }
 
-    public void setRcvMsg(long rcvMsg) {
-        this.rcvMsg = rcvMsg;
+    public long getSendBytes() {
+        return sendBytes;
+    }
+
+    public long getRcvBytes() {
+        return rcvBytes;
+    }
+
+    /**
+     * @return the size of the PUBLISH packets sent, headers included
+     */
+    public long getSendWireBytes() {
+        return sendWireBytes;
     }
 
     public long getElapsedTime() {
         return elapsedTime;
     }
 
-    public void setElapsedTime(long elapsedTime) {
-        this.elapsedTime = elapsedTime;
+    /**
+     * @return the RTT histogram in microseconds, empty for subscribers
+     */
+    public Histogram getRtt() {
+        return mode == Mode.PUB ? histogram : EMPTY;
     }
 
-    public List<Long> getRtts() {
-        return rtts;
+    /**
+     * @return the end-to-end (publish-to-delivery) latency histogram in microseconds, empty for publishers
+     */
+    public Histogram getLatency() {
+        return mode == Mode.SUB ? histogram : EMPTY;
     }
 
+    /**
+     * @return the average RTT in milliseconds
+     */
     public double getAverageRTT() {
-        return rtts.stream().mapToLong(l -> l).average().orElse(0);
+        return HistogramUtils.meanMillis(getRtt());
     }
 
-    public int getQos() {
-        return qos;
+    /**
+     * @return the id stamped by this publisher on its messages, -1 for subscribers
+     */
+    public int getPublisherId() {
+        return publisherId;
     }
 
-    public void setQos(int qos) {
-        this.qos = qos;
+    /**
+     * @return the messages received more than once
+     */
+    public long getDupMsg() {
+        return dupMsg;
     }
 
-    public Mode getMode() {
-        return mode;
+    /**
+     * @return the messages received after one with a higher sequence number from the same publisher
+     */
+    public long getReorderedMsg() {
+        return reorderedMsg;
     }
 
-    public void setMode(Mode mode) {
-        this.mode = mode;
+    /**
+     * @return the messages received too late to tell whether they were unique, left out of the distinct ones
+     */
+    public long getLateMsg() {
+        return lateMsg;
+    }
+
+    /**
+     * @return the distinct messages received from each publisher, by publisher id
+     */
+    public Map<Integer, Long> getRcvMsgByPublisher() {
+        return rcvMsgByPublisher;
+    }
+
+    /**
+     * @return the messages due in the measurement window and never published, as the publisher fell behind its
+     * schedule: 0 in closed loop
+     */
+    public long getUnsentMsg() {
+        return unsentMsg;
+    }
+
+    public int getQos() {
+        return qos;
+    }
+
+    public Mode getMode() {
+        return mode;
     }
 }
@@ -0,0 +1,86 @@
+package it.uniupo;
+
+import it.uniupo.descriptors.Environment;
+import it.uniupo.descriptors.Executor;
+import it.uniupo.descriptors.Protocol;
+import it.uniupo.engine.Engine;
+import it.uniupo.engine.SimulatedClient;
+import it.uniupo.mqttv3.MqttV3Executor;
+import it.uniupo.mqttv5.MqttV5Executor;
+import it.uniupo.stats.Aggregate;
+import it.uniupo.util.PayloadPool;
+import it.uniupo.util.SharedSubscription;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Creates the executors described by an environment.
+ *
+ * @author Lorenzo Ferron
+ * @version 2026.10.18
+ */
+public class Fleet {
+
+    public final static String PARENT_LEVEL = "/f3RR0n";
+
+    private final Environment env;
+    private final String hostURI;
+    private final int firstId;
+    private final Map<Executor, PayloadPool> pools = new IdentityHashMap<>();
+
+    /**
+     * Generates once the payloads of the publishers of each config.
+     *
+     * @param env     the environment
+     * @param hostURI the URI of the broker
+     * @param firstId the id of the first executor, so that executors of different processes have distinct ids
+     * @throws IOException              if a payload size histogram cannot be read
+     * @throws IllegalArgumentException if publishers declare a share group
+     */
+    public Fleet(Environment env, String hostURI, int firstId) throws IOException {
+        this.env = env;
+        this.hostURI = hostURI;
+        this.firstId = firstId;
+        for (int i = 0; i < env.getConfigs().size(); i++) {
+            Executor config = env.getConfigs().get(i);
+            if (config.getPayload() != null && config.getGroup() != null)
+                throw new IllegalArgumentException("Only subscribers can join a share group");
+            if (config.getPayload() != null)
+                pools.put(config, PayloadPool.of(config.getPayload(), config.getPayloadSize(), i));
+        }
+    }
+
+    /**
+     * @param engine the engine driving the executors
+     * @return new executors, ready to be opened
+     */
+    public List<SimulatedClient> create(Engine engine) {
+        List<SimulatedClient> fleet = new ArrayList<>(env.getConfigs().stream().mapToInt(Executor::getSize).sum());
+        int publisherId = firstId;
+        for (Executor config : env.getConfigs()) {
+            Protocol protocol = config.getProtocol() == null ? env.getProtocol() : config.getProtocol();
+            String topic = SharedSubscription.filter(config.getGroup(), PARENT_LEVEL + config.getTopic());
+            for (int j = 0; j < config.getSize(); j++)
+                if (protocol == Protocol.MQTTV5)
+                    fleet.add(new MqttV5Executor(config, topic, hostURI, env.getEncoding(), publisherId++, pools.get(config), engine));
+                else
+                    fleet.add(new MqttV3Executor(config, topic, hostURI, env.getEncoding(), publisherId++, pools.get(config), engine));
+        }
+        return fleet;
+    }
+
+    /**
+     * @param fleet executors whose run is over
+     * @return their results, folded
+     */
+    public static Aggregate aggregate(List<? extends SimulatedClient> fleet) {
+        Aggregate aggregate = new Aggregate();
+        fleet.forEach(executor -> aggregate.add(executor.getResults()));
+        return aggregate;
+    }
+
+}
@@ -1,4 +1,4 @@
-package it.uniupo.mqttv3;
+package it.uniupo;
 
 public enum Mode {
     PUB, SUB
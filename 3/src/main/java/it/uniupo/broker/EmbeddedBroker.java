@@ -0,0 +1,465 @@
+package it.uniupo.broker;
+
+import it.uniupo.util.SharedSubscription;
+import org.eclipse.paho.client.mqttv3.MqttTopic;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A minimal MQTT 3.1.1 and 5 server listening on the loopback interface, to run benchmarks without an external broker.
+ * <p>
+ * It does just what the benchmark needs: connections, subscriptions with wildcards, shared subscriptions, publications
+ * with QoS 0, 1 and 2 and keep-alive pings. The members of a share group get the matching messages in turn. MQTT 5
+ * clients may alias the topics they publish on, while the server states no Receive Maximum and ignores the other
+ * properties. There is no persistence, no retained message, no will and no retransmission, so its cost is close to the
+ * bare network loop and the results show the ceiling of the generator rather than the cost of a broker. Subscriptions
+ * are indexed by topic, so routing a message only scans the filters with wildcards, not every connection.
+ * Every connection is served by its own thread and a message is written to the subscribers by the thread of its
+ * publisher, so a slow subscriber pushes back on the publishers through TCP.
+ *
+ * @author Lorenzo Ferron
+ * @version 2026.10.18
+ */
+public class EmbeddedBroker implements AutoCloseable {
+
+    private static final int CONNECT = 1;
+    private static final int CONNACK = 2;
+    private static final int PUBLISH = 3;
+    private static final int PUBACK = 4;
+    private static final int PUBREC = 5;
+    private static final int PUBREL = 6;
+    private static final int PUBCOMP = 7;
+    private static final int SUBSCRIBE = 8;
+    private static final int SUBACK = 9;
+    private static final int UNSUBSCRIBE = 10;
+    private static final int UNSUBACK = 11;
+    private static final int PINGREQ = 12;
+    private static final int PINGRESP = 13;
+    private static final int DISCONNECT = 14;
+
+    private static final int TOPIC_ALIAS = 0x23;
+    private static final int TOPIC_ALIAS_MAXIMUM = 0x22;
+
+    private final ServerSocket server;
+    private final Set<Session> sessions = ConcurrentHashMap.newKeySet();
+    // the subscribed sessions and their QoS, by filter without wildcards and by filter with wildcards
+    private final Map<String, Map<Session, Integer>> exact = new ConcurrentHashMap<>();
+    private final Map<String, Map<Session, Integer>> wildcards = new ConcurrentHashMap<>();
+    // by shared subscription filter
+    private final Map<String, ShareGroup> groups = new ConcurrentHashMap<>();
+    private final AtomicInteger count = new AtomicInteger();
+
+    /**
+     * Starts the broker on an ephemeral port.
+     *
+     * @throws IOException
+     */
+    public EmbeddedBroker() throws IOException {
+        this(0);
+    }
+
+    /**
+     * @param port the port to listen on, 0 for an ephemeral one
+     * @throws IOException
+     */
+    public EmbeddedBroker(int port) throws IOException {
+        this.server = new ServerSocket(port, 1024, InetAddress.getLoopbackAddress());
+        Thread acceptor = new Thread(this::accept, "broker-acceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    /**
+     * @return the URI clients connect to
+     */
+    public String getURI() {
+        return "tcp://" + server.getInetAddress().getHostAddress() + ":" + server.getLocalPort();
+    }
+
+    private void accept() {
+        while (!server.isClosed())
+            try {
+                Socket socket = server.accept();
+                socket.setTcpNoDelay(true);
+                Session session = new Session(socket);
+                sessions.add(session);
+                Thread thread = new Thread(session, "broker-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                thread.start();
+            } catch (IOException e) {
+                if (!server.isClosed()) e.printStackTrace();
+            }
+    }
+
+    /**
+     * Delivers a message once to every session with a matching subscription, at the highest QoS among them, and to
+     * one member of every matching share group.
+     *
+     * @param topic the topic of the message
+     * @param name  the topic encoded in UTF-8
+     */
+    private void route(String topic, byte[] name, byte[] payload, int qos) {
+        Map<Session, Integer> subscribers = exact.get(topic);
+        Map<Session, Integer> merged = null;
+        for (Map.Entry<String, Map<Session, Integer>> wildcard : wildcards.entrySet())
+            if (MqttTopic.isMatched(wildcard.getKey(), topic)) {
+                // a session may match more filters, and gets the message once
+                if (merged == null) merged = subscribers == null ? new HashMap<>() : new HashMap<>(subscribers);
+                for (Map.Entry<Session, Integer> subscriber : wildcard.getValue().entrySet())
+                    merged.merge(subscriber.getKey(), subscriber.getValue(), Math::max);
+            }
+        if (merged != null) subscribers = merged;
+        if (subscribers != null)
+            for (Map.Entry<Session, Integer> subscriber : subscribers.entrySet())
+                subscriber.getKey().deliver(name, payload, Math.min(qos, subscriber.getValue()));
+        for (ShareGroup group : groups.values())
+            if (MqttTopic.isMatched(group.topic, topic)) {
+                Member member = group.next();
+                if (member != null) member.session.deliver(name, payload, Math.min(qos, member.qos));
+            }
+    }
+
+    private void subscribe(Session session, String filter, int qos) {
+        index(filter).compute(filter, (key, subscribers) -> {
+            if (subscribers == null) subscribers = new ConcurrentHashMap<>();
+            subscribers.put(session, qos);
+            return subscribers;
+        });
+    }
+
+    /**
+     * @return whether the session was subscribed to the filter
+     */
+    private boolean unsubscribe(Session session, String filter) {
+        boolean[] found = new boolean[1];
+        index(filter).computeIfPresent(filter, (key, subscribers) -> {
+            found[0] = subscribers.remove(session) != null;
+            return subscribers.isEmpty() ? null : subscribers;
+        });
+        return found[0];
+    }
+
+    private Map<String, Map<Session, Integer>> index(String filter) {
+        return filter.indexOf('+') < 0 && filter.indexOf('#') < 0 ? exact : wildcards;
+    }
+
+    @Override
+    public void close() throws IOException {
+        server.close();
+        sessions.forEach(Session::close);
+    }
+
+    /**
+     * The connection of a client.
+     */
+    private class Session implements Runnable {
+
+        private final Socket socket;
+        private final DataInputStream in;
+        private final DataOutputStream out;
+        // the filters of the session, to leave the index when it closes
+        private final Set<String> subscriptions = ConcurrentHashMap.newKeySet();
+        // topic aliases of an MQTT 5 client, used by the session thread only
+        private final Map<Integer, String> aliases = new HashMap<>();
+        // the last topic published on and its encoding, used by the session thread only: publishers keep to a topic
+        private String lastTopic;
+        private byte[] lastName;
+        private volatile boolean v5;
+        // guarded by out
+        private int nextId;
+
+        Session(Socket socket) throws IOException {
+            this.socket = socket;
+            this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        }
+
+        @Override
+        public void run() {
+            try {
+                int header;
+                while ((header = in.read()) != -1) {
+                    byte[] body = new byte[readVariableByteInteger(in)];
+                    in.readFully(body);
+                    if (!handle(header, new DataInputStream(new ByteArrayInputStream(body)))) break;
+                }
+            } catch (IOException ignored) {
+                // the client went away
+            } finally {
+                close();
+            }
+        }
+
+        /**
+         * @return {@code false} to close the connection
+         */
+        private boolean handle(int header, DataInputStream body) throws IOException {
+            switch (header >>> 4) {
+                case CONNECT:
+                    String protocol = body.readUTF();
+                    int level = body.readUnsignedByte();
+                    body.readUnsignedByte(); // flags
+                    int keepAlive = body.readUnsignedShort();
+                    boolean supported = protocol.equals("MQTT") && (level == 4 || level == 5)
+                            || protocol.equals("MQIsdp") && level == 3;
+                    // a client silent for one and a half keep-alive periods is gone
+                    if (keepAlive > 0) socket.setSoTimeout(keepAlive * 1500);
+                    v5 = supported && level == 5;
+                    if (v5)
+                        // no session, success and as many topic aliases as Paho can read: it takes 0xFFFF for -1
+                        write(CONNACK << 4, 0, 0, 3, TOPIC_ALIAS_MAXIMUM, 0x7F, 0xFF);
+                    else
+                        write(CONNACK << 4, 0, supported ? 0 : 1);
+                    return supported;
+                case PUBLISH:
+                    int qos = header >>> 1 & 3;
+                    String topic = body.readUTF();
+                    int id = qos > 0 ? body.readUnsignedShort() : 0;
+                    if (v5) {
+                        int alias = readTopicAlias(body);
+                        if (alias > 0 && topic.isEmpty()) topic = aliases.get(alias);
+                        else if (alias > 0) aliases.put(alias, topic);
+                        if (topic == null) return false;
+                    }
+                    byte[] payload = new byte[body.available()];
+                    body.readFully(payload);
+                    if (!topic.equals(lastTopic)) {
+                        lastTopic = topic;
+                        lastName = topic.getBytes(StandardCharsets.UTF_8);
+                    }
+                    route(topic, lastName, payload, qos);
+                    if (qos == 1) write(PUBACK << 4, id >>> 8, id);
+                    else if (qos == 2) write(PUBREC << 4, id >>> 8, id);
+                    return true;
+                case PUBREC:
+                    id = body.readUnsignedShort();
+                    write(PUBREL << 4 | 2, id >>> 8, id);
+                    return true;
+                case PUBREL:
+                    id = body.readUnsignedShort();
+                    write(PUBCOMP << 4, id >>> 8, id);
+                    return true;
+                case PUBACK:
+                case PUBCOMP:
+                    return true;
+                case SUBSCRIBE:
+                    id = body.readUnsignedShort();
+                    ByteArrayOutputStream granted = new ByteArrayOutputStream();
+                    granted.write(id >>> 8);
+                    granted.write(id);
+                    if (v5) {
+                        skipProperties(body);
+                        granted.write(0);
+                    }
+                    while (body.available() > 0) {
+                        String filter = body.readUTF();
+                        int requested = body.readUnsignedByte() & 3;
+                        if (SharedSubscription.isShared(filter))
+                            groups.computeIfAbsent(filter, ShareGroup::new).add(this, requested);
+                        else {
+                            subscriptions.add(filter);
+                            subscribe(this, filter, requested);
+                        }
+                        granted.write(requested);
+                    }
+                    write(SUBACK << 4, granted.toByteArray());
+                    return true;
+                case UNSUBSCRIBE:
+                    id = body.readUnsignedShort();
+                    ByteArrayOutputStream removed = new ByteArrayOutputStream();
+                    removed.write(id >>> 8);
+                    removed.write(id);
+                    if (v5) {
+                        skipProperties(body);
+                        removed.write(0);
+                    }
+                    while (body.available() > 0) {
+                        String filter = body.readUTF();
+                        ShareGroup group = groups.get(filter);
+                        boolean found = SharedSubscription.isShared(filter) ? group != null && group.remove(this)
+                                : subscriptions.remove(filter) && unsubscribe(this, filter);
+                        // MQTT 5 states the outcome of each filter
+                        if (v5) removed.write(found ? 0x00 : 0x11);
+                    }
+                    write(UNSUBACK << 4, removed.toByteArray());
+                    return true;
+                case PINGREQ:
+                    write(PINGRESP << 4);
+                    return true;
+                case DISCONNECT:
+                default:
+                    return false;
+            }
+        }
+
+        private int readVariableByteInteger(DataInput input) throws IOException {
+            int value = 0;
+            for (int shift = 0; shift < 28; shift += 7) {
+                int digit = input.readUnsignedByte();
+                value |= (digit & 0x7F) << shift;
+                if ((digit & 0x80) == 0) return value;
+            }
+            throw new IOException("Malformed variable byte integer");
+        }
+
+        private void skipProperties(DataInputStream body) throws IOException {
+            body.skipBytes(readVariableByteInteger(body));
+        }
+
+        /**
+         * Reads the properties of an MQTT 5 PUBLISH.
+         *
+         * @return the topic alias, 0 if there is none
+         */
+        private int readTopicAlias(DataInputStream body) throws IOException {
+            int end = body.available() - readVariableByteInteger(body);
+            int alias = 0;
+            while (body.available() > end) {
+                int id = body.readUnsignedByte();
+                switch (id) {
+                    case TOPIC_ALIAS:
+                        alias = body.readUnsignedShort();
+                        break;
+                    case 0x01: // payload format indicator
+                        body.skipBytes(1);
+                        break;
+                    case 0x02: // message expiry interval
+                        body.skipBytes(4);
+                        break;
+                    case 0x03: // content type
+                    case 0x08: // response topic
+                    case 0x09: // correlation data
+                        body.skipBytes(body.readUnsignedShort());
+                        break;
+                    case 0x0B: // subscription identifier
+                        readVariableByteInteger(body);
+                        break;
+                    case 0x26: // user property
+                        body.skipBytes(body.readUnsignedShort());
+                        body.skipBytes(body.readUnsignedShort());
+                        break;
+                    default:
+                        throw new IOException("Malformed PUBLISH property " + id);
+                }
+            }
+            return alias;
+        }
+
+        private void writeLength(int length) throws IOException {
+            do {
+                int digit = length & 0x7F;
+                length >>>= 7;
+                out.write(length > 0 ? digit | 0x80 : digit);
+            } while (length > 0);
+        }
+
+        private void write(int header, int... body) throws IOException {
+            synchronized (out) {
+                out.write(header);
+                writeLength(body.length);
+                for (int b : body) out.write(b);
+                out.flush();
+            }
+        }
+
+        private void write(int header, byte[] body) throws IOException {
+            synchronized (out) {
+                out.write(header);
+                writeLength(body.length);
+                out.write(body);
+                out.flush();
+            }
+        }
+
+        void deliver(byte[] topic, byte[] payload, int qos) {
+            try {
+                synchronized (out) {
+                    out.write(PUBLISH << 4 | qos << 1);
+                    writeLength(2 + topic.length + (qos > 0 ? 2 : 0) + (v5 ? 1 : 0) + payload.length);
+                    out.writeShort(topic.length);
+                    out.write(topic);
+                    if (qos > 0) {
+                        nextId = nextId % 0xFFFF + 1;
+                        out.writeShort(nextId);
+                    }
+                    // no property
+                    if (v5) out.write(0);
+                    out.write(payload);
+                    out.flush();
+                }
+            } catch (IOException e) {
+                close();
+            }
+        }
+
+        void close() {
+            sessions.remove(this);
+            subscriptions.forEach(filter -> unsubscribe(this, filter));
+            groups.values().forEach(group -> group.remove(this));
+            try {
+                socket.close();
+            } catch (IOException ignored) {
+                // already closed
+            }
+        }
+    }
+
+    /**
+     * The members of a shared subscription, taking the matching messages in turn.
+     */
+    private static class ShareGroup {
+
+        private final String topic;
+        private final AtomicInteger next = new AtomicInteger();
+        // replaced on every change, so routing reads it without locking
+        private volatile Member[] members = new Member[0];
+
+        ShareGroup(String filter) {
+            this.topic = SharedSubscription.getTopic(filter);
+        }
+
+        synchronized void add(Session session, int qos) {
+            remove(session);
+            Member[] added = Arrays.copyOf(members, members.length + 1);
+            added[members.length] = new Member(session, qos);
+            members = added;
+        }
+
+        synchronized boolean remove(Session session) {
+            Member[] kept = Arrays.stream(members).filter(member -> member.session != session).toArray(Member[]::new);
+            boolean removed = kept.length < members.length;
+            members = kept;
+            return removed;
+        }
+
+        /**
+         * @return the member to deliver the next message to, {@code null} if the group is empty
+         */
+        Member next() {
+            Member[] current = members;
+            return current.length == 0 ? null : current[Math.floorMod(next.getAndIncrement(), current.length)];
+        }
+    }
+
+    private static class Member {
+
+        private final Session session;
+        private final int qos;
+
+        Member(Session session, int qos) {
+            this.session = session;
+            this.qos = qos;
+        }
+    }
+
+}
@@ -0,0 +1,25 @@
+package it.uniupo.descriptors;
+
+import com.google.gson.annotations.SerializedName;
+
+/**
+ * How publishers encode the benchmark info into each message.
+ *
+ * @author Lorenzo Ferron
+ * @version 2026.10.18
+ */
+public enum Encoding {
+
+    /**
+     * Fixed-layout binary header, see {@link it.uniupo.util.ProbeCodec}.
+     */
+    @SerializedName("probe")
+    PROBE,
+
+    /**
+     * Java serialization of a {@link Message}, kept to compare with old results.
+     */
+    @SerializedName("serializable")
+    SERIALIZABLE
+
+}
@@ -21,10 +21,42 @@ public class Environment {
     @Expose(serialize = false)
     private int timeout = 30;
 
+    @SerializedName("warmup")
+    @Expose(serialize = false)
+    private int warmup = 0;
+
+    @SerializedName("rampUp")
+    @Expose(serialize = false)
+    private int rampUp = 0;
+
+    @SerializedName("reuseConnections")
+    @Expose(serialize = false)
+    private boolean reuseConnections = false;
+
+    @SerializedName("quiesce")
+    @Expose(serialize = false)
+    private int quiesce = 5;
+
     @SerializedName("configs")
     @Expose(serialize = false)
     private List<Executor> configs;
 
+    @SerializedName("encoding")
+    @Expose(serialize = false)
+    private Encoding encoding = Encoding.PROBE;
+
+    @SerializedName("protocol")
+    @Expose(serialize = false)
+    private Protocol protocol = Protocol.MQTTV3;
+
+    @SerializedName("storm")
+    @Expose(serialize = false)
+    private Storm storm = null;
+
+    @SerializedName("search")
+    @Expose(serialize = false)
+    private Search search = null;
+
     /**
      * No args constructor for use in serialization
      */
@@ -54,6 +86,51 @@ public class Environment {
         this.timeout = timeout;
     }
 
+    /**
+     * @return the seconds of traffic, after the ramp-up, left out of the results
+     */
+    public int getWarmup() {
+        return warmup;
+    }
+
+    public void setWarmup(int warmup) {
+        this.warmup = warmup;
+    }
+
+    /**
+     * @return the seconds over which publishers are started
+     */
+    public int getRampUp() {
+        return rampUp;
+    }
+
+    public void setRampUp(int rampUp) {
+        this.rampUp = rampUp;
+    }
+
+    /**
+     * @return whether the clients connect once and stay connected across the runs, instead of reconnecting at each run
+     */
+    public boolean isReuseConnections() {
+        return reuseConnections;
+    }
+
+    public void setReuseConnections(boolean reuseConnections) {
+        this.reuseConnections = reuseConnections;
+    }
+
+    /**
+     * @return the longest wait, in seconds, for the messages of a run to settle before the next one when connections
+     * are reused
+     */
+    public int getQuiesce() {
+        return quiesce;
+    }
+
+    public void setQuiesce(int quiesce) {
+        this.quiesce = quiesce;
+    }
+
     public List<Executor> getConfigs() {
         return configs;
     }
@@ -62,4 +139,45 @@ public class Environment {
         this.configs = configs;
     }
 
+    public Encoding getEncoding() {
+        return encoding;
+    }
+
+    public void setEncoding(Encoding encoding) {
+        this.encoding = encoding;
+    }
+
+    /**
+     * @return the protocol of the configs that do not choose one
+     */
+    public Protocol getProtocol() {
+        return protocol;
+    }
+
+    public void setProtocol(Protocol protocol) {
+        this.protocol = protocol;
+    }
+
+    /**
+     * @return the connection storm to run instead of the configs, {@code null} to run the configs
+     */
+    public Storm getStorm() {
+        return storm;
+    }
+
+    public void setStorm(Storm storm) {
+        this.storm = storm;
+    }
+
+    /**
+     * @return the saturation search to run on the configs, {@code null} to run them once
+     */
+    public Search getSearch() {
+        return search;
+    }
+
+    public void setSearch(Search search) {
+        this.search = search;
+    }
+
 }
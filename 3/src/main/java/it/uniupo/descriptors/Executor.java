@@ -28,6 +28,26 @@ public class Executor {
     @Expose(serialize = false)
     private String payload = null;
 
+    @SerializedName("payloadSize")
+    @Expose(serialize = false)
+    private PayloadSize payloadSize = null;
+
+    @SerializedName("rate")
+    @Expose(serialize = false)
+    private double rate = 0;
+
+    @SerializedName("inflight")
+    @Expose(serialize = false)
+    private int inflight = 1;
+
+    @SerializedName("protocol")
+    @Expose(serialize = false)
+    private Protocol protocol = null;
+
+    @SerializedName("group")
+    @Expose(serialize = false)
+    private String group = null;
+
     /**
      * No args constructor for use in serialization
      */
@@ -74,4 +94,58 @@ public class Executor {
         this.payload = payload;
     }
 
+    /**
+     * @return the distribution of the message sizes, {@code null} to send the payload as it is
+     */
+    public PayloadSize getPayloadSize() {
+        return payloadSize;
+    }
+
+    public void setPayloadSize(PayloadSize payloadSize) {
+        this.payloadSize = payloadSize;
+    }
+
+    /**
+     * @return the target rate of each publisher in msg/s, 0 to publish in closed loop
+     */
+    public double getRate() {
+        return rate;
+    }
+
+    public void setRate(double rate) {
+        this.rate = rate;
+    }
+
+    /**
+     * @return the maximum number of unacknowledged messages of each publisher
+     */
+    public int getInflight() {
+        return inflight;
+    }
+
+    public void setInflight(int inflight) {
+        this.inflight = inflight;
+    }
+
+    /**
+     * @return the protocol of these executors, {@code null} for the one of the environment
+     */
+    public Protocol getProtocol() {
+        return protocol;
+    }
+
+    public void setProtocol(Protocol protocol) {
+        this.protocol = protocol;
+    }
+
+    /**
+     * @return the share group these subscribers join, {@code null} for plain subscriptions
+     */
+    public String getGroup() {
+        return group;
+    }
+
+    public void setGroup(String group) {
+        this.group = group;
+    }
 }
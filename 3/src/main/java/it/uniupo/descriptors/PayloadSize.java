@@ -0,0 +1,157 @@
+package it.uniupo.descriptors;
+
+import com.google.gson.annotations.Expose;
+import com.google.gson.annotations.SerializedName;
+
+import java.util.List;
+
+/**
+ * A class to represent the distribution of the payload sizes of a publisher.
+ *
+ * @author Lorenzo Ferron
+ * @version 2026.10.18
+ */
+public class PayloadSize {
+
+    public enum Type {
+
+        /**
+         * Every message is {@code size} bytes long.
+         */
+        @SerializedName("fixed")
+        FIXED,
+
+        /**
+         * Sizes are uniformly distributed between {@code min} and {@code max} bytes, both included.
+         */
+        @SerializedName("uniform")
+        UNIFORM,
+
+        /**
+         * Sizes are drawn from {@code buckets} in proportion to their weights.
+         */
+        @SerializedName("weighted")
+        WEIGHTED,
+
+        /**
+         * Sizes are drawn from a histogram captured from a real fleet and stored in {@code file}, one
+         * {@code size,count} line per bucket.
+         */
+        @SerializedName("histogram")
+        HISTOGRAM
+    }
+
+    @SerializedName("type")
+    @Expose(serialize = false)
+    private Type type = Type.FIXED;
+
+    @SerializedName("size")
+    @Expose(serialize = false)
+    private int size;
+
+    @SerializedName("min")
+    @Expose(serialize = false)
+    private int min;
+
+    @SerializedName("max")
+    @Expose(serialize = false)
+    private int max;
+
+    @SerializedName("buckets")
+    @Expose(serialize = false)
+    private List<Bucket> buckets;
+
+    @SerializedName("file")
+    @Expose(serialize = false)
+    private String file;
+
+    /**
+     * No args constructor for use in serialization
+     */
+    public PayloadSize() {
+        //Empty body...
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public void setType(Type type) {
+        this.type = type;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public void setSize(int size) {
+        this.size = size;
+    }
+
+    public int getMin() {
+        return min;
+    }
+
+    public void setMin(int min) {
+        this.min = min;
+    }
+
+    public int getMax() {
+        return max;
+    }
+
+    public void setMax(int max) {
+        this.max = max;
+    }
+
+    public List<Bucket> getBuckets() {
+        return buckets;
+    }
+
+    public void setBuckets(List<Bucket> buckets) {
+        this.buckets = buckets;
+    }
+
+    public String getFile() {
+        return file;
+    }
+
+    public void setFile(String file) {
+        this.file = file;
+    }
+
+    /**
+     * A size with its relative weight.
+     */
+    public static class Bucket {
+
+        @SerializedName("size")
+        @Expose(serialize = false)
+        private int size;
+
+        @SerializedName("weight")
+        @Expose(serialize = false)
+        private double weight;
+
+        /**
+         * No args constructor for use in serialization
+         */
+        public Bucket() {
+            //Empty body...
+        }
+
+        public Bucket(int size, double weight) {
+            this.size = size;
+            this.weight = weight;
+        }
+
+        public int getSize() {
+            return size;
+        }
+
+        public double getWeight() {
+            return weight;
+        }
+    }
+
+}
@@ -0,0 +1,25 @@
+package it.uniupo.descriptors;
+
+import com.google.gson.annotations.SerializedName;
+
+/**
+ * The MQTT version executors speak.
+ *
+ * @author Lorenzo Ferron
+ * @version 2026.10.18
+ */
+public enum Protocol {
+
+    /**
+     * MQTT 3.1.1, see {@link it.uniupo.mqttv3.MqttV3Executor}.
+     */
+    @SerializedName("mqttv3")
+    MQTTV3,
+
+    /**
+     * MQTT 5, with topic aliases and the flow control of the server, see {@link it.uniupo.mqttv5.MqttV5Executor}.
+     */
+    @SerializedName("mqttv5")
+    MQTTV5
+
+}
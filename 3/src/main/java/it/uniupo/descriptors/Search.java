@@ -0,0 +1,140 @@
+package it.uniupo.descriptors;
+
+import com.google.gson.annotations.Expose;
+import com.google.gson.annotations.SerializedName;
+
+import java.util.List;
+
+/**
+ * A saturation search: the configs are run at increasing offered rates until the latency or the losses break the
+ * limits, so as to find the highest rate the broker sustains.
+ *
+ * @author Lorenzo Ferron
+ * @version 2026.10.18
+ */
+public class Search {
+
+    @SerializedName("strategy")
+    @Expose(serialize = false)
+    private Strategy strategy = Strategy.BINARY;
+
+    @SerializedName("from")
+    @Expose(serialize = false)
+    private double from;
+
+    @SerializedName("to")
+    @Expose(serialize = false)
+    private double to = Double.MAX_VALUE;
+
+    @SerializedName("step")
+    @Expose(serialize = false)
+    private double step;
+
+    @SerializedName("p99")
+    @Expose(serialize = false)
+    private double p99;
+
+    @SerializedName("loss")
+    @Expose(serialize = false)
+    private double loss = 0;
+
+    @SerializedName("qos")
+    @Expose(serialize = false)
+    private List<Integer> qos = null;
+
+    @SerializedName("duration")
+    @Expose(serialize = false)
+    private int duration = 10;
+
+    /**
+     * No args constructor for use in serialization
+     */
+    public Search() {
+        //Empty body...
+    }
+
+    public Strategy getStrategy() {
+        return strategy;
+    }
+
+    public void setStrategy(Strategy strategy) {
+        this.strategy = strategy;
+    }
+
+    /**
+     * @return the first offered rate of all the publishers together, in msg/s
+     */
+    public double getFrom() {
+        return from;
+    }
+
+    public void setFrom(double from) {
+        this.from = from;
+    }
+
+    /**
+     * @return the highest offered rate tried, in msg/s
+     */
+    public double getTo() {
+        return to;
+    }
+
+    public void setTo(double to) {
+        this.to = to;
+    }
+
+    /**
+     * @return the increment of the step search, or the resolution of the binary one, in msg/s
+     */
+    public double getStep() {
+        return step;
+    }
+
+    public void setStep(double step) {
+        this.step = step;
+    }
+
+    /**
+     * @return the highest p99 of any RTT or end-to-end latency allowed, in milliseconds
+     */
+    public double getP99() {
+        return p99;
+    }
+
+    public void setP99(double p99) {
+        this.p99 = p99;
+    }
+
+    /**
+     * @return the highest fraction of lost messages allowed
+     */
+    public double getLoss() {
+        return loss;
+    }
+
+    public void setLoss(double loss) {
+        this.loss = loss;
+    }
+
+    /**
+     * @return the QoS levels searched, each applied to all the configs, {@code null} for the ones of the publishers
+     */
+    public List<Integer> getQos() {
+        return qos;
+    }
+
+    public void setQos(List<Integer> qos) {
+        this.qos = qos;
+    }
+
+    /**
+     * @return the length of each run of a probe in seconds, in place of the timeout of the environment
+     */
+    public int getDuration() {
+        return duration;
+    }
+
+    public void setDuration(int duration) {
+        this.duration = duration;
+    }
+}
@@ -0,0 +1,77 @@
+package it.uniupo.descriptors;
+
+import com.google.gson.annotations.Expose;
+import com.google.gson.annotations.SerializedName;
+
+/**
+ * A connection storm: many clients connecting, and possibly subscribing, at a target rate, as after a broker restart.
+ *
+ * @author Lorenzo Ferron
+ * @version 2026.10.18
+ */
+public class Storm {
+
+    @SerializedName("clients")
+    @Expose(serialize = false)
+    private int clients;
+
+    @SerializedName("rate")
+    @Expose(serialize = false)
+    private double rate = 0;
+
+    @SerializedName("topic")
+    @Expose(serialize = false)
+    private String topic = null;
+
+    @SerializedName("qos")
+    @Expose(serialize = false)
+    private int qos;
+
+    /**
+     * No args constructor for use in serialization
+     */
+    public Storm() {
+        //Empty body...
+    }
+
+    /**
+     * @return the number of clients connecting
+     */
+    public int getClients() {
+        return clients;
+    }
+
+    public void setClients(int clients) {
+        this.clients = clients;
+    }
+
+    /**
+     * @return the target rate of connection attempts in connections/s, 0 for all at once
+     */
+    public double getRate() {
+        return rate;
+    }
+
+    public void setRate(double rate) {
+        this.rate = rate;
+    }
+
+    /**
+     * @return the topic every client subscribes to once connected, {@code null} not to subscribe
+     */
+    public String getTopic() {
+        return topic;
+    }
+
+    public void setTopic(String topic) {
+        this.topic = topic;
+    }
+
+    public int getQos() {
+        return qos;
+    }
+
+    public void setQos(int qos) {
+        this.qos = qos;
+    }
+}
@@ -0,0 +1,25 @@
+package it.uniupo.descriptors;
+
+import com.google.gson.annotations.SerializedName;
+
+/**
+ * How a saturation search moves the offered rate.
+ *
+ * @author Lorenzo Ferron
+ * @version 2026.10.18
+ */
+public enum Strategy {
+
+    /**
+     * Raises the rate by a fixed step until a probe breaks the limits.
+     */
+    @SerializedName("step")
+    STEP,
+
+    /**
+     * Doubles the rate until a probe breaks the limits, then bisects down to the step.
+     */
+    @SerializedName("binary")
+    BINARY
+
+}
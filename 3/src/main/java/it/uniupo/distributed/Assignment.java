@@ -0,0 +1,40 @@
+package it.uniupo.distributed;
+
+import it.uniupo.descriptors.Environment;
+
+/**
+ * The share of a run assigned to a worker.
+ *
+ * @author Lorenzo Ferron
+ * @version 2026.10.18
+ */
+class Assignment {
+
+    private int run;
+    private Environment environment;
+    private int firstId;
+
+    /**
+     * @param run         the index of the run
+     * @param environment the environment of the worker, a slice of the whole one
+     * @param firstId     the id of the first executor of the worker
+     */
+    Assignment(int run, Environment environment, int firstId) {
+        this.run = run;
+        this.environment = environment;
+        this.firstId = firstId;
+    }
+
+    int getRun() {
+        return run;
+    }
+
+    Environment getEnvironment() {
+        return environment;
+    }
+
+    int getFirstId() {
+        return firstId;
+    }
+
+}
@@ -0,0 +1,166 @@
+package it.uniupo.distributed;
+
+import com.google.gson.*;
+import it.uniupo.util.HistogramUtils;
+import org.HdrHistogram.Histogram;
+import org.eclipse.paho.client.mqttv3.*;
+import org.eclipse.paho.client.mqttv3.persist.MemoryPersistence;
+
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.DataFormatException;
+
+/**
+ * The control connection between the coordinator and the workers.
+ * <p>
+ * Control messages are JSON documents published with QoS 1 under {@link #ROOT}, outside the benchmark topics, on the
+ * very broker under test. Incoming messages are queued, so the callback thread of the connection never runs a
+ * benchmark.
+ *
+ * @author Lorenzo Ferron
+ * @version 2026.10.18
+ */
+class ControlChannel implements MqttCallback, AutoCloseable {
+
+    static final String ROOT = "envqtt/control/";
+    /**
+     * Coordinator to workers: who is there?
+     */
+    static final String DISCOVER = ROOT + "discover";
+    /**
+     * Worker to coordinator: a {@link Signal} announcing the worker
+     */
+    static final String HELLO = ROOT + "hello";
+    /**
+     * Worker to coordinator: a {@link Signal} telling the worker connected the fleet of a run
+     */
+    static final String READY = ROOT + "ready";
+    /**
+     * Coordinator to workers: a {@link Signal} starting a run
+     */
+    static final String START = ROOT + "start";
+    /**
+     * Worker to coordinator: the {@link Report} of a run
+     */
+    static final String RESULT = ROOT + "result";
+    /**
+     * Coordinator to workers: the benchmark is over
+     */
+    static final String EXIT = ROOT + "exit";
+
+    static final Gson GSON = new GsonBuilder()
+            .registerTypeAdapter(Histogram.class, new HistogramAdapter())
+            .enableComplexMapKeySerialization()
+            .serializeSpecialFloatingPointValues()
+            .create();
+
+    private final MqttClient client;
+    private final BlockingQueue<Received> inbox = new LinkedBlockingQueue<>();
+
+    /**
+     * @param hostURI the URI of the broker
+     * @param topics  the topics to receive
+     * @throws MqttException
+     */
+    ControlChannel(String hostURI, String... topics) throws MqttException {
+        this.client = new MqttClient(hostURI, MqttClient.generateClientId(), new MemoryPersistence());
+        MqttConnectOptions options = new MqttConnectOptions();
+        options.setCleanSession(true);
+        options.setAutomaticReconnect(true);
+        options.setMaxInflight(1000);
+        client.setCallback(this);
+        client.connect(options);
+        for (String topic : topics)
+            client.subscribe(topic, 1);
+    }
+
+    /**
+     * @param worker the id of a worker
+     * @return the topic the worker receives its {@link Assignment assignments} on
+     */
+    static String assign(String worker) {
+        return ROOT + worker + "/assign";
+    }
+
+    void send(String topic, Object message) throws MqttException {
+        client.publish(topic, GSON.toJson(message).getBytes(StandardCharsets.UTF_8), 1, false);
+    }
+
+    /**
+     * @param timeout the time to wait
+     * @param unit    the unit of {@code timeout}
+     * @return the next message, {@code null} if none arrived in time
+     * @throws InterruptedException
+     */
+    Received receive(long timeout, TimeUnit unit) throws InterruptedException {
+        return inbox.poll(timeout, unit);
+    }
+
+    @Override
+    public void connectionLost(Throwable cause) {
+        System.err.println("Control connection lost: " + cause.getMessage());
+    }
+
+    @Override
+    public void messageArrived(String topic, MqttMessage message) {
+        inbox.add(new Received(topic, new String(message.getPayload(), StandardCharsets.UTF_8)));
+    }
+
+    @Override
+    public void deliveryComplete(IMqttDeliveryToken token) {
+        // NO-OP
+    }
+
+    @Override
+    public void close() throws MqttException {
+        if (client.isConnected()) client.disconnect();
+        client.close();
+    }
+
+    /**
+     * A control message.
+     */
+    static class Received {
+
+        private final String topic;
+        private final String json;
+
+        Received(String topic, String json) {
+            this.topic = topic;
+            this.json = json;
+        }
+
+        String getTopic() {
+            return topic;
+        }
+
+        <T> T as(Class<T> type) {
+            return GSON.fromJson(json, type);
+        }
+    }
+
+    /**
+     * Sends histograms in their compressed encoding, as Base64 strings.
+     */
+    private static class HistogramAdapter implements JsonSerializer<Histogram>, JsonDeserializer<Histogram> {
+
+        @Override
+        public JsonElement serialize(Histogram src, Type typeOfSrc, JsonSerializationContext context) {
+            return new JsonPrimitive(Base64.getEncoder().encodeToString(HistogramUtils.encode(src)));
+        }
+
+        @Override
+        public Histogram deserialize(JsonElement json, Type typeOfT, JsonDeserializationContext context) {
+            try {
+                return HistogramUtils.decode(Base64.getDecoder().decode(json.getAsString()));
+            } catch (DataFormatException | IllegalArgumentException e) {
+                throw new JsonParseException("Invalid histogram", e);
+            }
+        }
+    }
+
+}
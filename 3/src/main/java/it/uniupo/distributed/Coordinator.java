@@ -0,0 +1,170 @@
+package it.uniupo.distributed;
+
+import it.uniupo.descriptors.Environment;
+import it.uniupo.descriptors.Executor;
+import it.uniupo.engine.ResourceUsage;
+import it.uniupo.stats.Aggregate;
+import org.eclipse.paho.client.mqttv3.MqttException;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs a benchmark on remote {@link Worker workers} instead of this process.
+ * <p>
+ * The coordinator waits for the workers to join, splits the executors of every config evenly among them and drives
+ * each run over the control topic: every worker connects its share of the fleet, all of them are started together
+ * once they are ready and their reports, not settled yet, are combined into the aggregate of the run. Losses are then
+ * checked against the publishers of all workers.
+ *
+ * @author Lorenzo Ferron
+ * @version 2026.10.18
+ */
+public class Coordinator implements AutoCloseable {
+
+    private static final long JOIN_TIMEOUT = TimeUnit.MINUTES.toMillis(5);
+    private static final long MARGIN = TimeUnit.MINUTES.toMillis(5);
+
+    private final ControlChannel channel;
+    private final int count;
+    private final List<String> workers = new ArrayList<>();
+
+    /**
+     * @param hostURI the URI of the broker carrying the control topic
+     * @param count   the number of workers to wait for
+     * @throws IOException if the control connection fails
+     */
+    public Coordinator(String hostURI, int count) throws IOException {
+        this.count = count;
+        try {
+            this.channel = new ControlChannel(hostURI, ControlChannel.HELLO, ControlChannel.READY, ControlChannel.RESULT);
+        } catch (MqttException e) {
+            throw new IOException("Control connection failed: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Runs all the runs of the environment.
+     *
+     * @param env    the environment
+     * @param runs   filled with the aggregate of each run
+     * @param usages filled with the resources used by the worker closest to saturation in each run
+     * @throws IOException          if the workers do not answer in time
+     * @throws InterruptedException
+     */
+    public void run(Environment env, List<Aggregate> runs, List<ResourceUsage> usages) throws IOException, InterruptedException {
+        try {
+            join();
+            List<Environment> slices = split(env);
+            // end-to-end latencies subtract the nanoTime of the publisher from the one of the subscriber
+            long hosts = workers.stream().map(worker -> worker.substring(worker.indexOf('@') + 1)).distinct().count();
+            if (hosts > 1) {
+                System.out.println("The workers run on " + hosts + " hosts: end-to-end latencies are left out");
+                System.out.println();
+            }
+            long runTime = TimeUnit.SECONDS.toMillis(env.getRampUp() + env.getWarmup() + env.getTimeout());
+            for (int run = 0; run < env.getRunCount(); run++) {
+                int firstId = 0;
+                for (int w = 0; w < workers.size(); w++) {
+                    channel.send(ControlChannel.assign(workers.get(w)), new Assignment(run, slices.get(w), firstId));
+                    firstId += slices.get(w).getConfigs().stream().mapToInt(Executor::getSize).sum();
+                }
+                // workers open their clients over the ramp-up
+                await(ControlChannel.READY, Signal.class, run, JOIN_TIMEOUT + TimeUnit.SECONDS.toMillis(env.getRampUp()));
+                channel.send(ControlChannel.START, new Signal(null, run));
+                // disconnecting may take as long as the run itself
+                Map<String, Report> reports = await(ControlChannel.RESULT, Report.class, run, 3 * runTime + MARGIN);
+                Aggregate aggregate = new Aggregate();
+                ResourceUsage busiest = null;
+                for (Report report : reports.values()) {
+                    aggregate.combine(report.getAggregate());
+                    if (busiest == null || report.getUsage().getSaturation() > busiest.getSaturation())
+                        busiest = report.getUsage();
+                }
+                runs.add(hosts > 1 ? aggregate.dropLatency() : aggregate);
+                usages.add(busiest);
+            }
+        } catch (MqttException e) {
+            throw new IOException("Control message not sent: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Waits for {@link #count} workers to announce themselves.
+     */
+    private void join() throws MqttException, InterruptedException, IOException {
+        channel.send(ControlChannel.DISCOVER, new Signal(null, -1));
+        long deadline = System.currentTimeMillis() + JOIN_TIMEOUT;
+        while (workers.size() < count) {
+            ControlChannel.Received message = channel.receive(deadline - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+            if (message == null)
+                throw new IOException("Only " + workers.size() + " of " + count + " workers joined");
+            if (!message.getTopic().equals(ControlChannel.HELLO)) continue;
+            String worker = message.as(Signal.class).getWorker();
+            if (!workers.contains(worker)) {
+                workers.add(worker);
+                System.out.println("Worker " + worker + " joined (" + workers.size() + "/" + count + ")");
+            }
+        }
+        System.out.println();
+    }
+
+    /**
+     * @return the environment of each worker, with the same configs and a share of their executors
+     */
+    private List<Environment> split(Environment env) {
+        List<Environment> slices = new ArrayList<>(workers.size());
+        for (int w = 0; w < workers.size(); w++) {
+            Environment slice = ControlChannel.GSON.fromJson(ControlChannel.GSON.toJson(env), Environment.class);
+            for (int i = 0; i < slice.getConfigs().size(); i++) {
+                Executor config = slice.getConfigs().get(i);
+                // the remainders go to different workers for different configs
+                int rank = Math.floorMod(w - i, workers.size());
+                config.setSize(config.getSize() / workers.size() + (rank < config.getSize() % workers.size() ? 1 : 0));
+            }
+            slices.add(slice);
+        }
+        return slices;
+    }
+
+    /**
+     * Waits for a message of every worker about a run.
+     *
+     * @return the messages by worker
+     */
+    private <T extends Signal> Map<String, T> await(String topic, Class<T> type, int run, long timeout)
+            throws InterruptedException, IOException {
+        Map<String, T> messages = new LinkedHashMap<>();
+        long deadline = System.currentTimeMillis() + timeout;
+        while (messages.size() < workers.size()) {
+            ControlChannel.Received message = channel.receive(deadline - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+            if (message == null)
+                throw new IOException("Only " + messages.size() + " of " + workers.size() + " workers answered on " + topic);
+            if (!message.getTopic().equals(topic)) continue;
+            T signal = message.as(type);
+            if (signal.getRun() == run && workers.contains(signal.getWorker()))
+                messages.put(signal.getWorker(), signal);
+        }
+        return messages;
+    }
+
+    /**
+     * Dismisses the workers and closes the control connection.
+     *
+     * @throws IOException
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            channel.send(ControlChannel.EXIT, new Signal(null, -1));
+            channel.close();
+        } catch (MqttException e) {
+            throw new IOException("Control connection not closed: " + e.getMessage(), e);
+        }
+    }
+
+}
@@ -0,0 +1,31 @@
+package it.uniupo.distributed;
+
+import it.uniupo.engine.ResourceUsage;
+import it.uniupo.stats.Aggregate;
+
+/**
+ * The results of a worker for a run: its aggregate, not settled yet, and the resources it used.
+ *
+ * @author Lorenzo Ferron
+ * @version 2026.10.18
+ */
+class Report extends Signal {
+
+    private Aggregate aggregate;
+    private ResourceUsage usage;
+
+    Report(String worker, int run, Aggregate aggregate, ResourceUsage usage) {
+        super(worker, run);
+        this.aggregate = aggregate;
+        this.usage = usage;
+    }
+
+    Aggregate getAggregate() {
+        return aggregate;
+    }
+
+    ResourceUsage getUsage() {
+        return usage;
+    }
+
+}
@@ -0,0 +1,27 @@
+package it.uniupo.distributed;
+
+/**
+ * A control message carrying only who sent it and the run it refers to.
+ *
+ * @author Lorenzo Ferron
+ * @version 2026.10.18
+ */
+class Signal {
+
+    private String worker;
+    private int run;
+
+    Signal(String worker, int run) {
+        this.worker = worker;
+        this.run = run;
+    }
+
+    String getWorker() {
+        return worker;
+    }
+
+    int getRun() {
+        return run;
+    }
+
+}
@@ -0,0 +1,132 @@
+package it.uniupo.distributed;
+
+import it.uniupo.Fleet;
+import it.uniupo.descriptors.Environment;
+import it.uniupo.engine.Engine;
+import it.uniupo.engine.ResourceUsage;
+import it.uniupo.engine.SimulatedClient;
+import it.uniupo.report.MetricsEndpoint;
+import org.eclipse.paho.client.mqttv3.MqttException;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Generates the share of the load assigned by a {@link Coordinator}.
+ * <p>
+ * A worker announces itself on the control topic, then for every run connects the executors it is assigned, waits
+ * for the start signal, runs them on its own engine and reports their aggregate. It serves until the coordinator
+ * dismisses it.
+ *
+ * @author Lorenzo Ferron
+ * @version 2026.10.18
+ */
+public class Worker implements AutoCloseable {
+
+    private final String id;
+    private final String hostURI;
+    private final ControlChannel channel;
+    private final int metricsPort;
+
+    /**
+     * @param hostURI the URI of the broker carrying the control topic and under test
+     * @throws IOException if the control connection fails
+     */
+    public Worker(String hostURI) throws IOException {
+        this(hostURI, -1);
+    }
+
+    /**
+     * @param hostURI     the URI of the broker carrying the control topic and under test
+     * @param metricsPort the local port serving the live metrics of this worker, -1 not to serve them
+     * @throws IOException if the control connection fails
+     */
+    public Worker(String hostURI, int metricsPort) throws IOException {
+        this.metricsPort = metricsPort;
+        // pid@host, without characters that are not valid in a topic level
+        this.id = ManagementFactory.getRuntimeMXBean().getName().replaceAll("[/+#]", "_");
+        this.hostURI = hostURI;
+        try {
+            this.channel = new ControlChannel(hostURI, ControlChannel.DISCOVER, ControlChannel.START,
+                    ControlChannel.EXIT, ControlChannel.assign(id));
+            channel.send(ControlChannel.HELLO, new Signal(id, -1));
+        } catch (MqttException e) {
+            throw new IOException("Control connection failed: " + e.getMessage(), e);
+        }
+        System.out.println("Worker " + id + " waiting for a coordinator");
+    }
+
+    /**
+     * Serves the coordinator until it dismisses this worker.
+     *
+     * @throws IOException          if a control message cannot be sent
+     * @throws InterruptedException
+     */
+    public void serve() throws IOException, InterruptedException {
+        Assignment assignment = null;
+        List<SimulatedClient> fleet = null;
+        try (Engine engine = new Engine();
+             MetricsEndpoint endpoint = metricsPort < 0 ? null : new MetricsEndpoint(metricsPort, engine.getMetrics())) {
+            if (endpoint != null) System.out.println("Metrics served at " + endpoint.getURL());
+            while (true) {
+                ControlChannel.Received message = channel.receive(1, TimeUnit.SECONDS);
+                if (message == null) continue;
+                String topic = message.getTopic();
+                if (topic.equals(ControlChannel.DISCOVER))
+                    channel.send(ControlChannel.HELLO, new Signal(id, -1));
+                else if (topic.equals(ControlChannel.assign(id))) {
+                    assignment = message.as(Assignment.class);
+                    // a fleet kept from the previous run is reused, unless a new benchmark begins
+                    if (fleet != null && assignment.getRun() == 0) {
+                        engine.close(fleet);
+                        fleet = null;
+                    }
+                    if (fleet == null) {
+                        Environment env = assignment.getEnvironment();
+                        fleet = new Fleet(env, hostURI, assignment.getFirstId()).create(engine);
+                        engine.open(fleet, env.getRampUp(), TimeUnit.SECONDS);
+                        System.out.println("Run " + (assignment.getRun() + 1) + ": " + fleet.size() + " executors connected");
+                    }
+                    channel.send(ControlChannel.READY, new Signal(id, assignment.getRun()));
+                } else if (topic.equals(ControlChannel.START)) {
+                    if (fleet == null || message.as(Signal.class).getRun() != assignment.getRun()) continue;
+                    Environment env = assignment.getEnvironment();
+                    ResourceUsage usage = engine.run(fleet, env.getRampUp(), env.getWarmup(), env.getTimeout(),
+                            TimeUnit.SECONDS, null);
+                    if (env.isReuseConnections()) {
+                        engine.quiesce(fleet, env.getQuiesce(), TimeUnit.SECONDS);
+                        engine.reset(fleet);
+                    } else
+                        engine.close(fleet);
+                    channel.send(ControlChannel.RESULT, new Report(id, assignment.getRun(), Fleet.aggregate(fleet), usage));
+                    System.out.printf("Run %d: done, generator CPU usage %.1f%%, %d GCs in %d ms%s%n", assignment.getRun() + 1,
+                            usage.getCpuUsage() * 100, usage.getGcCount(), usage.getGcTime(),
+                            usage.isCpuBound() || usage.isGcBound() ? ", WARNING: the generator may be the bottleneck" : "");
+                    if (!env.isReuseConnections())
+                        fleet = null;
+                    else if (assignment.getRun() + 1 == env.getRunCount()) {
+                        engine.close(fleet);
+                        fleet = null;
+                    }
+                } else if (topic.equals(ControlChannel.EXIT)) {
+                    if (fleet != null) engine.close(fleet);
+                    return;
+                }
+            }
+        } catch (MqttException e) {
+            throw new IOException("Control message not sent: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            channel.close();
+        } catch (MqttException e) {
+            throw new IOException("Control connection not closed: " + e.getMessage(), e);
+        }
+    }
+
+}
@@ -0,0 +1,338 @@
+package it.uniupo.engine;
+
+import it.uniupo.Data;
+import it.uniupo.Mode;
+import it.uniupo.descriptors.Encoding;
+import it.uniupo.descriptors.Executor;
+import it.uniupo.descriptors.Message;
+import it.uniupo.stats.ClientMetrics;
+import it.uniupo.trace.Tracer;
+import it.uniupo.util.ByteUtils;
+import it.uniupo.util.PayloadPool;
+import it.uniupo.util.ProbeCodec;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The part of a simulated client that does not depend on the MQTT version: the publish schedule, the window of
+ * reusable messages, and the accounting of sent and received messages.
+ * <p>
+ * Subclasses create and connect the client, send the messages of the window with {@link Slot#send(byte[])} and report
+ * their outcome, hand the received payloads to {@link #arrived(byte[])}, and size the PUBLISH packets.
+ *
+ * @author Lorenzo Ferron
+ * @version 2026.10.18
+ */
+public abstract class AbstractExecutor implements SimulatedClient {
+
+    private static final long MIN_TICK = TimeUnit.MILLISECONDS.toNanos(1);
+
+    protected final Engine engine;
+    protected final Mode mode;
+    protected final ClientMetrics metrics;
+    protected final Tracer tracer;
+    protected final int publisherId;
+    // the length of the topic name in bytes, as it is sent
+    protected final int topicLength;
+    private final Encoding encoding;
+    private final String payload;
+    private final double rate;
+    private final int inflight;
+    private final PayloadPool payloadPool;
+    private Data data;
+    // nanoTime and wall clock time the measurement window opens at
+    private volatile long measurementStart;
+    private volatile long measurementStartMillis;
+
+    // publisher state, guarded by this
+    private Queue<Slot> window;
+    private boolean running;
+    private long sequence;
+    private int cursor;
+    private long start;
+    private long end;
+    private long period;
+    private long nextSendTime;
+    private ScheduledFuture<?> ticker;
+
+    /**
+     * @param config      the descriptor of this executor
+     * @param topic       the full topic
+     * @param encoding
+     * @param publisherId
+     * @param payloadPool the payloads shared by the publishers of the same config, ignored by subscribers
+     * @param engine      the engine driving this executor
+     */
+    protected AbstractExecutor(Executor config, String topic, Encoding encoding, int publisherId,
+                               PayloadPool payloadPool, Engine engine) {
+        this.engine = engine;
+        this.encoding = encoding;
+        this.publisherId = publisherId;
+        this.mode = config.getPayload() == null ? Mode.SUB : Mode.PUB;
+        this.metrics = engine.getMetrics().register(publisherId, mode, topic, config.getQos());
+        this.tracer = engine.getTracer();
+        this.topicLength = topic.getBytes(StandardCharsets.UTF_8).length;
+        this.payload = config.getPayload();
+        this.rate = config.getRate();
+        this.inflight = config.getInflight();
+        this.payloadPool = payloadPool;
+        // publishers of the same config do not walk the sizes in lockstep
+        if (mode == Mode.PUB) this.cursor = publisherId % payloadPool.length();
+    }
+
+    /**
+     * @return whether the client is connected, so that it can publish
+     */
+    protected abstract boolean isConnected();
+
+    /**
+     * @return a message of the publish window, bound to the client
+     */
+    protected abstract Slot newSlot();
+
+    /**
+     * Called with the lock of the executor held, in publishing order.
+     *
+     * @param bytes the size of the payload of a published message
+     * @return the size of its PUBLISH packet, headers included
+     */
+    protected abstract int wireSize(int bytes);
+
+    /**
+     * @return the size of the publish window
+     */
+    public int getInflight() {
+        return inflight;
+    }
+
+    /**
+     * Accounts a received message.
+     *
+     * @param payload its payload
+     */
+    protected void arrived(byte[] payload) {
+        if (ProbeCodec.isProbe(payload)) {
+            // nanoTime is monotonic and exact as long as the publisher runs on this machine
+            long latency = System.nanoTime() - ProbeCodec.getSendTime(payload);
+            if (tracer != null)
+                tracer.receive(publisherId, ProbeCodec.getPublisherId(payload), ProbeCodec.getSequence(payload), latency);
+            // the publisher tells whether it counted the message, so both ends agree even across processes
+            if (!ProbeCodec.isMeasured(payload)) return;
+            metrics.received(payload.length);
+            metrics.recordLatency(latency);
+            metrics.track(ProbeCodec.getPublisherId(payload), ProbeCodec.getSequence(payload));
+        } else if (encoding == Encoding.SERIALIZABLE)
+            try {
+                long sendTime = ((Message) ByteUtils.byteToObj(payload)).getSendTime();
+                if (sendTime < measurementStartMillis) return;
+                metrics.received(payload.length);
+                metrics.recordLatency(TimeUnit.MILLISECONDS.toNanos(System.currentTimeMillis() - sendTime));
+            } catch (IOException | ClassNotFoundException e) {
+                e.printStackTrace();
+            }
+        else if (System.nanoTime() - measurementStart >= 0)
+            metrics.received(payload.length);
+    }
+
+    /**
+     * Stops publishing for good, when the connection is lost and not recovered.
+     */
+    protected synchronized void halt() {
+        running = false;
+    }
+
+    /**
+     * @return how long a disconnection may wait for the messages in flight, in milliseconds: twice the last run
+     */
+    protected synchronized long getDisconnectTimeout() {
+        return TimeUnit.NANOSECONDS.toMillis(end - start) * 2;
+    }
+
+    @Override
+    public synchronized void start(long measurementStart, long end) {
+        this.start = System.nanoTime();
+        this.end = end;
+        this.measurementStart = measurementStart;
+        this.measurementStartMillis = System.currentTimeMillis() + TimeUnit.NANOSECONDS.toMillis(measurementStart - start);
+        if (mode == Mode.SUB || !isConnected()) return;
+        int inflight = getInflight();
+        window = new ArrayDeque<>(inflight);
+        for (int i = 0; i < inflight; i++)
+            window.add(newSlot());
+        running = true;
+        nextSendTime = start;
+        if (rate > 0) {
+            period = (long) (TimeUnit.SECONDS.toNanos(1) / rate);
+            long tick = Math.max(period, MIN_TICK);
+            ticker = engine.getScheduler().scheduleAtFixedRate(this::pump, 0, tick, TimeUnit.NANOSECONDS);
+        } else
+            pump();
+    }
+
+    @Override
+    public synchronized void stop() {
+        running = false;
+        if (ticker != null) ticker.cancel(false);
+        if (period > 0) {
+            // in open loop, the messages due in the measurement window and left behind by a full window, a late
+            // ticker or a failure: they are neither sent nor lost, so they are counted apart
+            long due = Math.min(System.nanoTime(), end);
+            long first = measurementStart - nextSendTime > 0 ? ceilDiv(measurementStart - nextSendTime, period) : 0;
+            long last = due - nextSendTime > 0 ? ceilDiv(due - nextSendTime, period) : 0;
+            metrics.setUnsentMsg(Math.max(0, last - first));
+        }
+        // only the measurement window counts, whenever the client was started
+        long from = start - measurementStart > 0 ? start : measurementStart;
+        metrics.setElapsedTime(TimeUnit.NANOSECONDS.toMillis(Math.max(0, System.nanoTime() - from)));
+    }
+
+    @Override
+    public void reset() {
+        // the slots still in flight after a quiesce that timed out must not count in the next window
+        synchronized (this) {
+            window = null;
+        }
+        data = metrics.snapshot();
+        metrics.reset();
+    }
+
+    /**
+     * Fixes the results: subclasses close their client first, as late acks and deliveries are still accounted until
+     * then.
+     */
+    @Override
+    public void close() {
+        data = metrics.snapshot();
+    }
+
+    @Override
+    public ClientMetrics getMetrics() {
+        return metrics;
+    }
+
+    @Override
+    public Data getResults() {
+        return data;
+    }
+
+    /**
+     * Publishes as many messages as the window and the schedule allow. In closed loop a message is published as soon
+     * as a slot is free. In open loop the i-th message is due at {@code start + i * period} whatever happened to the
+     * previous ones, and its latency is measured from this intended send time: a broker stall then shows up in the
+     * latency instead of silently lowering the offered load (coordinated omission), and a full window delays the send,
+     * not the timeline. Messages due before the measurement window opens are sent, with their own sequence numbers,
+     * but not counted.
+     */
+    private synchronized void pump() {
+        long now = System.nanoTime();
+        Slot slot;
+        while (running && (period == 0 ? now < end : nextSendTime < end && nextSendTime <= now)
+                && (slot = window.poll()) != null) {
+            try {
+                long sendTime = period == 0 ? now : nextSendTime;
+                int bytes = slot.publish(sequence++, sendTime, payloadPool.size(cursor));
+                cursor = cursor + 1 == payloadPool.length() ? 0 : cursor + 1;
+                int wireBytes = wireSize(bytes);
+                if (sendTime - measurementStart >= 0)
+                    metrics.sent(bytes, wireBytes);
+                nextSendTime += period;
+                now = System.nanoTime();
+            } catch (IOException e) {
+                e.printStackTrace();
+                running = false;
+            }
+        }
+        if (period > 0 && nextSendTime >= end && ticker != null)
+            ticker.cancel(false);
+    }
+
+    /**
+     * @param slot the acknowledged slot
+     * @param rtt  its RTT in nanoseconds, negative if it is not recorded
+     */
+    private synchronized void release(Slot slot, long rtt) {
+        // a late acknowledgement from a previous run, whose window was retired or replaced
+        if (slot.home != window) return;
+        if (rtt >= 0) metrics.recordLatency(rtt);
+        metrics.addInflight(-1);
+        window.add(slot);
+        pump();
+    }
+
+    private static long ceilDiv(long dividend, long divisor) {
+        return (dividend + divisor - 1) / divisor;
+    }
+
+    /**
+     * A reusable message of the publish window. A slot is taken from the window to publish and it is given back by
+     * the delivery callback, so at most {@link #getInflight()} messages are unacknowledged and the publisher waits
+     * (back-pressure) when all of them are.
+     */
+    protected abstract class Slot {
+
+        private final Queue<Slot> home = window;
+        private byte[] buffer;
+        private long sequence;
+        private long sendTime;
+
+        /**
+         * @param sequence the sequence number of the message
+         * @param sendTime the {@link System#nanoTime()} the RTT is measured from
+         * @param size     the size of the message from the payload pool, ignored by the serializable encoding
+         * @return the size of the published message
+         * @throws IOException
+         */
+        private int publish(long sequence, long sendTime, int size) throws IOException {
+            this.sequence = sequence;
+            this.sendTime = sendTime;
+            if (encoding == Encoding.SERIALIZABLE) {
+                // the wall clock time at which the message should have left
+                long wallTime = System.currentTimeMillis() - TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - sendTime);
+                buffer = ByteUtils.objToByte(new Message(payload, wallTime));
+            } else {
+                // Paho sends the whole array: a buffer is kept as long as the size does not change, and traded for
+                // one of the right size in the pool when it does
+                if (buffer == null || buffer.length != size) {
+                    if (buffer != null) payloadPool.release(buffer);
+                    buffer = payloadPool.take(size);
+                }
+                ProbeCodec.encode(buffer, publisherId, sequence, sendTime, sendTime - measurementStart >= 0);
+            }
+            // traced first, so that the acknowledgement cannot precede it
+            if (tracer != null) tracer.publish(publisherId, sequence, System.nanoTime() - sendTime);
+            send(buffer);
+            metrics.addInflight(1);
+            return buffer.length;
+        }
+
+        /**
+         * Publishes the message, whose outcome is then reported with {@link #acknowledged()} or {@link #failed()}.
+         *
+         * @param payload the payload, sent as it is and left untouched until the outcome is reported
+         * @throws IOException if the message cannot be published
+         */
+        protected abstract void send(byte[] payload) throws IOException;
+
+        /**
+         * Gives the slot back once the message is acknowledged, recording its RTT.
+         */
+        protected void acknowledged() {
+            long rtt = System.nanoTime() - sendTime;
+            if (tracer != null) tracer.ack(publisherId, sequence, rtt);
+            release(this, sendTime - measurementStart >= 0 ? rtt : -1);
+        }
+
+        /**
+         * Gives the slot back once the message failed.
+         */
+        protected void failed() {
+            release(this, -1);
+        }
+    }
+
+}
@@ -0,0 +1,225 @@
+package it.uniupo.engine;
+
+import it.uniupo.stats.MetricsRegistry;
+import it.uniupo.trace.Tracer;
+import org.eclipse.paho.client.mqttv3.MqttPingSender;
+import org.eclipse.paho.client.mqttv3.ScheduledExecutorPingSender;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Execution engine multiplexing simulated clients over a small shared scheduler.
+ * <p>
+ * Publishers are driven by their delivery callbacks (closed loop) or by periodic ticks on the scheduler (open loop),
+ * subscribers only react to incoming messages and keep-alive pings run on the scheduler too, so the engine adds no
+ * thread per client. Paho still runs its own receiver, sender and callback threads for every connection.
+ *
+ * @author Lorenzo Ferron
+ * @version 2026.10.18
+ */
+public class Engine implements AutoCloseable {
+
+    /**
+     * Milliseconds between two checks of a quiescing fleet
+     */
+    public static final long QUIESCE_POLL = 100;
+
+    private final ScheduledExecutorService scheduler;
+    private final MetricsRegistry metrics = new MetricsRegistry();
+    private volatile Tracer tracer;
+
+    public Engine() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    public Engine(int threads) {
+        AtomicInteger count = new AtomicInteger();
+        this.scheduler = Executors.newScheduledThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "engine-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public ScheduledExecutorService getScheduler() {
+        return scheduler;
+    }
+
+    /**
+     * @return the metrics of the clients driven by this engine
+     */
+    public MetricsRegistry getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * @return the tracer of the events of the clients, {@code null} if they are not traced
+     */
+    public Tracer getTracer() {
+        return tracer;
+    }
+
+    /**
+     * @param tracer the tracer of the events of the clients created from now on, {@code null} not to trace them
+     */
+    public void setTracer(Tracer tracer) {
+        this.tracer = tracer;
+    }
+
+    /**
+     * @return a keep-alive ping sender running on the shared scheduler instead of a timer thread per client
+     */
+    public MqttPingSender newPingSender() {
+        return new ScheduledExecutorPingSender(scheduler);
+    }
+
+    /**
+     * Opens the clients one after another at regular intervals over the ramp-up, so their CONNECTs and SUBSCRIBEs do
+     * not hit the broker all in the same millisecond, and waits for them.
+     *
+     * @param clients the fleet
+     * @param rampUp  the time over which clients are opened
+     * @param unit    the unit of the ramp-up
+     * @throws InterruptedException
+     */
+    public void open(List<? extends SimulatedClient> clients, long rampUp, TimeUnit unit) throws InterruptedException {
+        CountDownLatch ready = new CountDownLatch(clients.size());
+        long step = clients.isEmpty() ? 0 : unit.toNanos(rampUp) / clients.size();
+        for (int i = 0; i < clients.size(); i++) {
+            SimulatedClient client = clients.get(i);
+            if (step == 0) client.open(ready);
+            else scheduler.schedule(() -> client.open(ready), i * step, TimeUnit.NANOSECONDS);
+        }
+        ready.await();
+    }
+
+    /**
+     * Runs all clients under a new {@link RunController}.
+     *
+     * @param clients the fleet
+     * @param rampUp  the time over which publishers are started
+     * @param warmup  the length of the warm-up following the ramp-up
+     * @param timeout the length of the measurement window
+     * @param unit    the unit of the lengths
+     * @param sampler the sampler streaming the time series of the run, may be {@code null}
+     * @return the resources used by the generator during the measurement window
+     * @throws InterruptedException
+     */
+    public ResourceUsage run(List<? extends SimulatedClient> clients, long rampUp, long warmup, long timeout,
+                             TimeUnit unit, Sampler sampler) throws InterruptedException {
+        if (tracer != null) tracer.run();
+        RunController controller = new RunController(scheduler);
+        controller.setSampler(sampler);
+        return controller.run(clients, rampUp, warmup, timeout, unit);
+    }
+
+    /**
+     * Waits for the messages of a run that just stopped to settle: until no publisher has messages in flight and the
+     * subscribers have received nothing for a {@link #QUIESCE_POLL poll}, or until the timeout.
+     *
+     * @param clients the fleet
+     * @param timeout the longest wait
+     * @param unit    the unit of the timeout
+     * @return whether the messages settled before the timeout
+     * @throws InterruptedException
+     */
+    public boolean quiesce(List<? extends SimulatedClient> clients, long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        long received = -1;
+        while (true) {
+            long inflight = 0;
+            long now = 0;
+            for (SimulatedClient client : clients) {
+                inflight += client.getMetrics().getInflight();
+                now += client.getMetrics().getRcvMsg();
+            }
+            if (inflight == 0 && now == received) return true;
+            if (System.nanoTime() - deadline >= 0) return false;
+            received = now;
+            TimeUnit.MILLISECONDS.sleep(QUIESCE_POLL);
+        }
+    }
+
+    /**
+     * Fixes the results of the run and starts the metrics of all clients over, keeping them connected.
+     *
+     * @param clients the fleet, stopped and quiesced
+     */
+    public void reset(List<? extends SimulatedClient> clients) {
+        clients.forEach(SimulatedClient::reset);
+    }
+
+    /**
+     * Disconnects all clients at once, waits for them and releases them.
+     *
+     * @param clients the fleet
+     * @throws InterruptedException
+     */
+    public void close(List<? extends SimulatedClient> clients) throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(clients.size());
+        clients.forEach(client -> client.disconnect(done));
+        done.await();
+        clients.forEach(SimulatedClient::close);
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * Heap and threads taken by a fleet of clients: create it before the clients and measure it once they are open.
+     */
+    public static class Footprint {
+
+        private final long heapBefore;
+        private final int threadsBefore;
+        private int clients;
+        private long heap;
+        private int threads;
+
+        public Footprint() {
+            this.heapBefore = usedHeap();
+            this.threadsBefore = ManagementFactory.getThreadMXBean().getThreadCount();
+        }
+
+        public void measure(int clients) {
+            this.clients = clients;
+            heap = usedHeap() - heapBefore;
+            threads = ManagementFactory.getThreadMXBean().getThreadCount() - threadsBefore;
+        }
+
+        private static long usedHeap() {
+            System.gc();
+            return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+        }
+
+        public int getClients() {
+            return clients;
+        }
+
+        /**
+         * @return the heap in bytes taken by each client, as measured after a GC
+         */
+        public double getHeapPerClient() {
+            return clients == 0 ? 0 : (double) heap / clients;
+        }
+
+        public double getThreadsPerClient() {
+            return clients == 0 ? 0 : (double) threads / clients;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d clients, ~%.1f KiB of heap and %.1f threads per client", clients,
+                    getHeapPerClient() / 1024, getThreadsPerClient());
+        }
+    }
+
+}
@@ -0,0 +1,219 @@
+package it.uniupo.engine;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Resources used by the generator itself over a time window, to tell when the tool rather than the broker is the
+ * bottleneck: CPU time, garbage collections, allocated memory and threads, read from the platform MXBeans.
+ *
+ * @author Lorenzo Ferron
+ * @version 2026.10.18
+ */
+public class ResourceUsage {
+
+    /**
+     * CPU usage, as a fraction of all the processors, above which the generator may be the bottleneck
+     */
+    public static final double CPU_THRESHOLD = 0.8;
+    /**
+     * Fraction of the window spent in garbage collection above which the generator may be the bottleneck
+     */
+    public static final double GC_THRESHOLD = 0.05;
+    /**
+     * The prefix of the names of the threads Paho starts for each connection
+     */
+    public static final String PAHO_THREAD_PREFIX = "MQTT ";
+
+    private final int processors = Runtime.getRuntime().availableProcessors();
+    private final long wallStart;
+    private final long cpuStart;
+    private final long gcCountStart;
+    private final long gcTimeStart;
+    private final transient Map<Long, Long> allocatedStart;
+    private long wallTime;
+    private long cpuTime;
+    private long gcCount;
+    private long gcTime;
+    private long allocatedBytes = -1;
+    private int threads;
+    private int pahoThreads;
+
+    private ResourceUsage() {
+        this.gcCountStart = gcCount();
+        this.gcTimeStart = gcTime();
+        this.allocatedStart = allocatedBytes();
+        this.wallStart = System.nanoTime();
+        this.cpuStart = processCpuTime();
+    }
+
+    /**
+     * @return a usage whose window starts now
+     */
+    public static ResourceUsage begin() {
+        return new ResourceUsage();
+    }
+
+    /**
+     * Closes the window.
+     */
+    public void end() {
+        wallTime = System.nanoTime() - wallStart;
+        cpuTime = processCpuTime() - cpuStart;
+        gcCount = gcCount() - gcCountStart;
+        gcTime = gcTime() - gcTimeStart;
+        Map<Long, Long> allocated = allocatedBytes();
+        if (allocatedStart != null && allocated != null) {
+            // threads ended during the window are missing: their allocations are left out
+            allocatedBytes = 0;
+            allocated.forEach((id, bytes) -> allocatedBytes += Math.max(0, bytes - allocatedStart.getOrDefault(id, 0L)));
+        }
+        ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+        for (ThreadInfo info : threadBean.getThreadInfo(threadBean.getAllThreadIds()))
+            if (info != null) {
+                threads++;
+                if (info.getThreadName().startsWith(PAHO_THREAD_PREFIX)) pahoThreads++;
+            }
+    }
+
+    /**
+     * @return the CPU time of the process in nanoseconds, summing the live threads if the JVM does not expose it
+     */
+    private static long processCpuTime() {
+        OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+        if (os instanceof com.sun.management.OperatingSystemMXBean)
+            return ((com.sun.management.OperatingSystemMXBean) os).getProcessCpuTime();
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        long total = 0;
+        for (long id : threads.getAllThreadIds())
+            total += Math.max(0, threads.getThreadCpuTime(id));
+        return total;
+    }
+
+    private static long gcCount() {
+        long total = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans())
+            total += Math.max(0, gc.getCollectionCount());
+        return total;
+    }
+
+    /**
+     * @return the time spent in garbage collection in milliseconds, as accounted by the collectors
+     */
+    private static long gcTime() {
+        long total = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans())
+            total += Math.max(0, gc.getCollectionTime());
+        return total;
+    }
+
+    /**
+     * @return the bytes allocated so far by each live thread, {@code null} if the JVM does not tell
+     */
+    private static Map<Long, Long> allocatedBytes() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (!(threads instanceof com.sun.management.ThreadMXBean)) return null;
+        com.sun.management.ThreadMXBean sun = (com.sun.management.ThreadMXBean) threads;
+        if (!sun.isThreadAllocatedMemorySupported() || !sun.isThreadAllocatedMemoryEnabled()) return null;
+        long[] ids = threads.getAllThreadIds();
+        long[] bytes = sun.getThreadAllocatedBytes(ids);
+        Map<Long, Long> allocated = new HashMap<>(ids.length * 2);
+        for (int i = 0; i < ids.length; i++)
+            if (bytes[i] >= 0) allocated.put(ids[i], bytes[i]);
+        return allocated;
+    }
+
+    public int getProcessors() {
+        return processors;
+    }
+
+    public long getCpuTime() {
+        return cpuTime;
+    }
+
+    public long getWallTime() {
+        return wallTime;
+    }
+
+    /**
+     * @return the CPU used by the generator as a fraction of all the processors
+     */
+    public double getCpuUsage() {
+        return wallTime == 0 ? 0 : (double) cpuTime / wallTime / processors;
+    }
+
+    public long getGcCount() {
+        return gcCount;
+    }
+
+    /**
+     * @return the time spent in garbage collection in milliseconds
+     */
+    public long getGcTime() {
+        return gcTime;
+    }
+
+    /**
+     * @return the fraction of the window spent in garbage collection
+     */
+    public double getGcShare() {
+        return wallTime == 0 ? 0 : (double) TimeUnit.MILLISECONDS.toNanos(gcTime) / wallTime;
+    }
+
+    /**
+     * @return the bytes allocated in the window, -1 if the JVM does not tell
+     */
+    public long getAllocatedBytes() {
+        return allocatedBytes;
+    }
+
+    /**
+     * @return the bytes allocated per second, -1 if the JVM does not tell
+     */
+    public double getAllocationRate() {
+        if (allocatedBytes < 0) return -1;
+        return wallTime == 0 ? 0 : allocatedBytes / (wallTime / 1e9);
+    }
+
+    /**
+     * @return the live threads at the end of the window
+     */
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * @return the live threads started by Paho at the end of the window
+     */
+    public int getPahoThreads() {
+        return pahoThreads;
+    }
+
+    /**
+     * @return whether the CPU usage exceeded {@link #CPU_THRESHOLD}
+     */
+    public boolean isCpuBound() {
+        return getCpuUsage() > CPU_THRESHOLD;
+    }
+
+    /**
+     * @return whether the time spent in garbage collection exceeded {@link #GC_THRESHOLD}
+     */
+    public boolean isGcBound() {
+        return getGcShare() > GC_THRESHOLD;
+    }
+
+    /**
+     * @return how close the generator came to a threshold, above 1 if it exceeded one
+     */
+    public double getSaturation() {
+        return Math.max(getCpuUsage() / CPU_THRESHOLD, getGcShare() / GC_THRESHOLD);
+    }
+
+}
@@ -0,0 +1,102 @@
+package it.uniupo.engine;
+
+import it.uniupo.Mode;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Drives the lifecycle of one run, shared by all the clients of the fleet.
+ * <p>
+ * The phases follow one another on timers of the engine scheduler and the caller simply waits on a latch, so nothing
+ * spins while clients are idle.
+ *
+ * @author Lorenzo Ferron
+ * @version 2026.10.18
+ */
+public class RunController {
+
+    public enum Phase {
+        IDLE, RAMP_UP, WARMUP, MEASUREMENT, STOPPED
+    }
+
+    private final ScheduledExecutorService scheduler;
+    private final CountDownLatch stopped = new CountDownLatch(1);
+    private volatile Phase phase = Phase.IDLE;
+    private ResourceUsage usage;
+    private Sampler sampler;
+
+    public RunController(ScheduledExecutorService scheduler) {
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * @param sampler the sampler streaming the time series of the run, if any
+     */
+    public void setSampler(Sampler sampler) {
+        this.sampler = sampler;
+    }
+
+    /**
+     * Starts the subscribers, then the publishers one after another over the ramp-up, so they do not hit the broker
+     * all at once. After the warm-up moves to the measurement phase and stops the clients at its end.
+     *
+     * @param clients     the fleet
+     * @param rampUp      the time over which publishers are started
+     * @param warmup      the length of the warm-up following the ramp-up
+     * @param measurement the length of the measurement window
+     * @param unit        the unit of the lengths
+     * @return the resources used by the generator during the measurement window
+     * @throws InterruptedException
+     */
+    public ResourceUsage run(List<? extends SimulatedClient> clients, long rampUp, long warmup, long measurement,
+                             TimeUnit unit) throws InterruptedException {
+        long measurementStart = System.nanoTime() + unit.toNanos(rampUp + warmup);
+        long end = measurementStart + unit.toNanos(measurement);
+        phase = rampUp > 0 ? Phase.RAMP_UP : warmup > 0 ? Phase.WARMUP : Phase.MEASUREMENT;
+        if (phase == Phase.MEASUREMENT) beginMeasurement();
+        clients.stream().filter(client -> client.getMetrics().getMode() == Mode.SUB)
+                .forEach(client -> client.start(measurementStart, end));
+        List<? extends SimulatedClient> publishers = clients.stream()
+                .filter(client -> client.getMetrics().getMode() == Mode.PUB).collect(Collectors.toList());
+        long step = publishers.isEmpty() ? 0 : unit.toNanos(rampUp) / publishers.size();
+        for (int i = 0; i < publishers.size(); i++) {
+            SimulatedClient publisher = publishers.get(i);
+            if (step == 0) publisher.start(measurementStart, end);
+            else scheduler.schedule(() -> publisher.start(measurementStart, end), i * step, TimeUnit.NANOSECONDS);
+        }
+        if (sampler != null) sampler.start(scheduler, clients);
+        if (phase == Phase.RAMP_UP && warmup > 0)
+            scheduler.schedule(() -> {
+                phase = Phase.WARMUP;
+            }, rampUp, unit);
+        if (phase != Phase.MEASUREMENT)
+            scheduler.schedule(this::beginMeasurement, measurementStart - System.nanoTime(), TimeUnit.NANOSECONDS);
+        scheduler.schedule(() -> {
+            if (sampler != null) sampler.stop();
+            clients.forEach(SimulatedClient::stop);
+            usage.end();
+            phase = Phase.STOPPED;
+            stopped.countDown();
+        }, end - System.nanoTime(), TimeUnit.NANOSECONDS);
+        stopped.await();
+        return usage;
+    }
+
+    private void beginMeasurement() {
+        usage = ResourceUsage.begin();
+        phase = Phase.MEASUREMENT;
+    }
+
+    public Phase getPhase() {
+        return phase;
+    }
+
+    public boolean isMeasuring() {
+        return phase == Phase.MEASUREMENT;
+    }
+
+}
@@ -0,0 +1,176 @@
+package it.uniupo.engine;
+
+import it.uniupo.Mode;
+import it.uniupo.stats.ClientMetrics;
+import it.uniupo.util.HistogramUtils;
+import org.HdrHistogram.Histogram;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Streams a time series of the running fleet to a CSV or NDJSON file.
+ * <p>
+ * Every interval the sampler reads the clients' counters and drains their latency recorders, neither of which blocks
+ * the clients, and writes one record per QoS with the publish and receive rates and the RTT and end-to-end latency
+ * percentiles of the interval. The file is flushed at each interval, so it can be followed while the run is going on.
+ * If the file cannot be written the failure is reported and the sampling stops, while the runs go on.
+ *
+ * @author Lorenzo Ferron
+ * @version 2026.10.18
+ */
+public class Sampler implements AutoCloseable {
+
+    public enum Format {
+        CSV, NDJSON
+    }
+
+    private static final String[] COLUMNS = {"run", "timestamp", "elapsed", "qos", "sendRate", "rcvRate",
+            "rttCount", "rttP50", "rttP99", "rttMax", "latencyCount", "latencyP50", "latencyP99", "latencyMax"};
+
+    private final File file;
+    private final BufferedWriter out;
+    private final Format format;
+    private final long interval;
+    private final Map<Integer, Group> groups = new TreeMap<>();
+    private List<? extends SimulatedClient> clients;
+    private ScheduledFuture<?> task;
+    private int run;
+    private long start;
+    private long last;
+    private IOException failure;
+
+    /**
+     * @param file     the output file, NDJSON if its name ends with {@code .ndjson} or {@code .json}, CSV otherwise
+     * @param interval the sampling interval in milliseconds
+     * @throws IOException
+     * @throws IllegalArgumentException if the interval is not positive
+     */
+    public Sampler(File file, long interval) throws IOException {
+        if (interval <= 0)
+            throw new IllegalArgumentException("The sampling interval must be positive, not " + interval + " ms");
+        this.file = file;
+        String name = file.getName().toLowerCase(Locale.ROOT);
+        this.format = name.endsWith(".ndjson") || name.endsWith(".json") ? Format.NDJSON : Format.CSV;
+        this.interval = interval;
+        this.out = Files.newBufferedWriter(file.toPath());
+        if (format == Format.CSV) {
+            out.write(String.join(",", COLUMNS));
+            out.newLine();
+        }
+    }
+
+    /**
+     * Starts sampling a run.
+     *
+     * @param scheduler the scheduler to sample on
+     * @param clients   the fleet
+     */
+    public synchronized void start(ScheduledExecutorService scheduler, List<? extends SimulatedClient> clients) {
+        this.clients = clients;
+        this.run++;
+        this.groups.clear();
+        this.start = this.last = System.nanoTime();
+        if (failure == null)
+            this.task = scheduler.scheduleAtFixedRate(this::sample, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops sampling the current run, writing a last record for the partial interval, and lets the clients drop their
+     * sampled histograms.
+     */
+    public synchronized void stop() {
+        if (task != null) task.cancel(false);
+        sample();
+        clients.forEach(client -> client.getMetrics().stopSampling());
+    }
+
+    private synchronized void sample() {
+        if (failure != null) return;
+        long now = System.nanoTime();
+        double seconds = (now - last) / 1e9;
+        if (seconds <= 0) return;
+        groups.values().forEach(Group::reset);
+        for (SimulatedClient client : clients) {
+            ClientMetrics metrics = client.getMetrics();
+            Group group = groups.computeIfAbsent(metrics.getQos(), qos -> new Group());
+            Histogram latency = metrics.sample();
+            if (metrics.getMode() == Mode.PUB) {
+                group.sent += metrics.getSendMsg();
+                group.rtt.add(latency);
+            } else {
+                group.received += metrics.getRcvMsg();
+                group.latency.add(latency);
+            }
+        }
+        try {
+            for (Map.Entry<Integer, Group> entry : groups.entrySet()) {
+                Group group = entry.getValue();
+                Object[] values = {run, System.currentTimeMillis(), (now - start) / 1e9, entry.getKey(),
+                        (group.sent - group.lastSent) / seconds, (group.received - group.lastReceived) / seconds,
+                        group.rtt.getTotalCount(), HistogramUtils.percentileMillis(group.rtt, 50),
+                        HistogramUtils.percentileMillis(group.rtt, 99), HistogramUtils.maxMillis(group.rtt),
+                        group.latency.getTotalCount(), HistogramUtils.percentileMillis(group.latency, 50),
+                        HistogramUtils.percentileMillis(group.latency, 99), HistogramUtils.maxMillis(group.latency)};
+                write(values);
+                group.lastSent = group.sent;
+                group.lastReceived = group.received;
+            }
+            out.flush();
+        } catch (IOException e) {
+            // thrown from a periodic task, it would only cancel it silently
+            failure = e;
+            task.cancel(false);
+            System.err.println("Time series not written to " + file + ", sampling stopped: " + e.getMessage());
+            return;
+        }
+        last = now;
+    }
+
+    private void write(Object[] values) throws IOException {
+        StringBuilder line = new StringBuilder(format == Format.CSV ? "" : "{");
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) line.append(',');
+            if (format == Format.NDJSON) line.append('"').append(COLUMNS[i]).append("\":");
+            line.append(values[i] instanceof Double ? String.format(Locale.ROOT, "%.3f", values[i]) : values[i]);
+        }
+        if (format == Format.NDJSON) line.append('}');
+        out.write(line.toString());
+        out.newLine();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        out.close();
+    }
+
+    /**
+     * Counters and interval histograms of the clients sharing a QoS.
+     */
+    private static class Group {
+
+        private final Histogram rtt = HistogramUtils.create();
+        private final Histogram latency = HistogramUtils.create();
+        private long sent;
+        private long received;
+        private long lastSent;
+        private long lastReceived;
+
+        private void reset() {
+            rtt.reset();
+            latency.reset();
+            sent = 0;
+            received = 0;
+        }
+    }
+
+}
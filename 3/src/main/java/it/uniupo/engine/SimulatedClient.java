@@ -0,0 +1,67 @@
+package it.uniupo.engine;
+
+import it.uniupo.Data;
+import it.uniupo.stats.ClientMetrics;
+
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * A simulated MQTT client driven by the {@link Engine}.
+ * <p>
+ * No method may block: clients react to the callbacks of their MQTT connection and to the tasks they schedule on the
+ * shared {@link Engine#getScheduler() scheduler}, so a handful of threads can drive any number of them.
+ *
+ * @author Lorenzo Ferron
+ * @version 2026.10.18
+ */
+public interface SimulatedClient {
+
+    /**
+     * Connects to the broker and, for subscribers, subscribes to the topic.
+     *
+     * @param ready counted down once the client is ready or failed
+     */
+    void open(CountDownLatch ready);
+
+    /**
+     * Starts the activity. Messages sent before the measurement window opens warm the system up and are left out of
+     * the counters and histograms.
+     *
+     * @param measurementStart the {@link System#nanoTime()} the measurement window opens at
+     * @param end              the {@link System#nanoTime()} the run ends at
+     */
+    void start(long measurementStart, long end);
+
+    /**
+     * Stops the measured activity and fixes the results.
+     */
+    void stop();
+
+    /**
+     * Fixes the results of the run and starts the metrics over, keeping the connection for the next run. It must be
+     * called once the client is stopped and its messages have settled: the acknowledgements of the ones still in
+     * flight are ignored from then on.
+     */
+    void reset();
+
+    /**
+     * @param done counted down once the client is disconnected or failed
+     */
+    void disconnect(CountDownLatch done);
+
+    /**
+     * Releases the resources of the client, it must not be called from its callbacks.
+     */
+    void close();
+
+    /**
+     * @return the live metrics of the client, read without blocking it
+     */
+    ClientMetrics getMetrics();
+
+    /**
+     * @return the snapshot of the metrics taken when the client was last reset or closed
+     */
+    Data getResults();
+
+}
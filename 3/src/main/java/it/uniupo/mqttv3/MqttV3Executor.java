@@ -1,57 +1,57 @@
 package it.uniupo.mqttv3;
 
-import it.uniupo.Data;
-import it.uniupo.descriptors.Message;
-import it.uniupo.util.ByteUtils;
+import it.uniupo.Mode;
+import it.uniupo.descriptors.Encoding;
+import it.uniupo.descriptors.Executor;
+import it.uniupo.engine.AbstractExecutor;
+import it.uniupo.engine.Engine;
+import it.uniupo.util.PacketSize;
+import it.uniupo.util.PayloadPool;
 import org.eclipse.paho.client.mqttv3.*;
+import org.eclipse.paho.client.mqttv3.internal.SystemHighResolutionTimer;
 import org.eclipse.paho.client.mqttv3.persist.MemoryPersistence;
 
 import java.io.IOException;
-import java.util.concurrent.BrokenBarrierException;
-import java.util.concurrent.CyclicBarrier;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.CountDownLatch;
 
-public class MqttV3Executor implements MqttCallback {
+public class MqttV3Executor extends AbstractExecutor implements MqttCallback {
 
     MqttV3Connection v3ConnectionParameters;
     MqttV3Publish v3PublishParameters;
     MqttV3Subscribe v3SubscriptionParameters;
     MqttAsyncClient v3Client;
-    private long timeout;
-    private Data data = new Data();
-    private Mode mode;
 
     /**
      * Initialises the MQTTv3 Executor
      *
-     * @param qos
-     * @param topic
-     * @param payload
-     * @param timeout
+     * @param config      the descriptor of this executor
+     * @param topic       the full topic
      * @param hostURI
+     * @param encoding
+     * @param publisherId
+     * @param payloadPool the payloads shared by the publishers of the same config, ignored by subscribers
+     * @param engine      the engine driving this executor
      */
-    public MqttV3Executor(int qos, String topic, String payload, int timeout, String hostURI) {
-        data.setTopic(topic);
-        data.setQos(qos);
-        data.setMode(mode = payload == null ? Mode.SUB : Mode.PUB);
-        this.timeout = TimeUnit.SECONDS.toMillis(timeout);
+    public MqttV3Executor(Executor config, String topic, String hostURI, Encoding encoding, int publisherId,
+                          PayloadPool payloadPool, Engine engine) {
+        super(config, topic, encoding, publisherId, payloadPool, engine);
         this.v3ConnectionParameters = new MqttV3Connection(hostURI);
-        if (payload != null) {
+        if (mode == Mode.PUB) {
             this.v3ConnectionParameters.setMaxInflight(3000000);
-            this.v3PublishParameters = new MqttV3Publish(payload, qos, topic);
+            this.v3PublishParameters = new MqttV3Publish(config.getPayload(), config.getQos(), topic);
         } else
-            this.v3SubscriptionParameters = new MqttV3Subscribe(topic, qos);
+            this.v3SubscriptionParameters = new MqttV3Subscribe(topic, config.getQos());
     }
 
     @Override
     public void connectionLost(Throwable cause) {
         if (!v3ConnectionParameters.isAutomaticReconnectEnabled())
-            closeClientAndExit();
+            halt();
     }
 
     @Override
     public void messageArrived(String topic, MqttMessage message) {
-        data.setRcvMsg(data.getRcvMsg() + 1);
+        arrived(message.getPayload());
     }
 
     @Override
@@ -59,104 +59,142 @@ public class MqttV3Executor implements MqttCallback {
         // NO-OP
     }
 
-    public void execute(CyclicBarrier gate) {
+    @Override
+    public void open(CountDownLatch ready) {
         try {
             // Create Client
             this.v3Client = new MqttAsyncClient(this.v3ConnectionParameters.getHostURI(),
-                    this.v3ConnectionParameters.getClientID(), new MemoryPersistence());
+                    this.v3ConnectionParameters.getClientID(), new MemoryPersistence(), engine.newPingSender(), null,
+                    new SystemHighResolutionTimer());
             this.v3Client.setCallback(this);
 
-            // Connect to Server
-            IMqttToken connectToken = v3Client.connect(v3ConnectionParameters.getConOpts());
-
-            // Execute action based on mode
-            if (mode == Mode.PUB) {
-                // Publish a message
-                long msgCount = 0;
-                connectToken.waitForCompletion();
-                gate.await();
-                long start = System.currentTimeMillis();
-                long end = start + timeout;
-
-                for (; System.currentTimeMillis() <= end; msgCount++) {
-                    Message message = new Message(this.v3PublishParameters.getPayload(), System.currentTimeMillis());
-                    publishMessage(ByteUtils.objToByte(message), this.v3PublishParameters.getQos(),
-                            this.v3PublishParameters.isRetain(), this.v3PublishParameters.getTopic());
+            // Connect to Server, then subscribe to a topic if needed
+            v3Client.connect(v3ConnectionParameters.getConOpts(), null, new ReadyListener(ready) {
+                @Override
+                public void onSuccess(IMqttToken asyncActionToken) {
+                    if (mode == Mode.PUB) {
+                        super.onSuccess(asyncActionToken);
+                        return;
+                    }
+                    try {
+                        v3Client.subscribe(v3SubscriptionParameters.getTopic(), v3SubscriptionParameters.getQos(),
+                                null, new ReadyListener(ready));
+                    } catch (MqttException e) {
+                        onFailure(asyncActionToken, e);
+                    }
                 }
-                data.setSendMsg(msgCount);
-                data.setElapsedTime(System.currentTimeMillis() - start);
-            } else {
-                connectToken.waitForCompletion();
-                // Subscribe to a topic
-                IMqttToken subToken = this.v3Client.subscribe(v3SubscriptionParameters.getTopic(),
-                        v3SubscriptionParameters.getQos());
-                gate.await();
-                long start = System.currentTimeMillis();
-
-                for (long end = start + timeout; System.currentTimeMillis() <= end;) ;
-                data.setElapsedTime(System.currentTimeMillis() - start);
-            }
+            });
+        } catch (MqttException e) {
+            e.printStackTrace();
+            ready.countDown();
+        }
+    }
+
+    @Override
+    protected boolean isConnected() {
+        return v3Client.isConnected();
+    }
+
+    @Override
+    protected Slot newSlot() {
+        return new V3Slot();
+    }
 
-            // Close the client
-            disconnectClient();
-            closeClientAndExit();
-        } catch (MqttException | IOException | InterruptedException | BrokenBarrierException e) {
+    @Override
+    protected int wireSize(int bytes) {
+        return PacketSize.v3Publish(topicLength, v3PublishParameters.getQos(), bytes);
+    }
+
+    @Override
+    public void disconnect(CountDownLatch done) {
+        try {
+            if (v3Client.isConnected())
+                v3Client.disconnect(getDisconnectTimeout(), null, new ReadyListener(done));
+            else
+                done.countDown();
+        } catch (MqttException e) {
             e.printStackTrace();
+            done.countDown();
         }
     }
 
-    private void closeClientAndExit() {
-        // Close the client
+    @Override
+    public void close() {
         try {
             this.v3Client.close();
-            //mainThread.join();
         } catch (MqttException e) {
-            // End the Application
-            System.exit(1);
+            e.printStackTrace();
         }
+        super.close();
     }
 
-    private void disconnectClient() throws MqttException {
-        // Disconnect
-        IMqttToken disconnectToken = v3Client.disconnect(timeout * 2);
-        disconnectToken.waitForCompletion();
+    /**
+     * Counts down a latch once an action completes, whatever its outcome.
+     */
+    private static class ReadyListener implements IMqttActionListener {
+
+        private final CountDownLatch latch;
+
+        ReadyListener(CountDownLatch latch) {
+            this.latch = latch;
+        }
+
+        @Override
+        public void onSuccess(IMqttToken asyncActionToken) {
+            latch.countDown();
+        }
+
+        @Override
+        public void onFailure(IMqttToken asyncActionToken, Throwable exception) {
+            exception.printStackTrace();
+            latch.countDown();
+        }
     }
 
     /**
-     * Simple helper function to publish a message.
-     *
-     * @param payload
-     * @param qos
-     * @param retain
-     * @param topic
-     * @throws MqttPersistenceException
-     * @throws MqttException
+     * A slot of the publish window with its own MQTT 3 message.
      */
-    private void publishMessage(byte[] payload, int qos, boolean retain, String topic)
-            throws MqttPersistenceException, MqttException {
-        MqttMessage v3Message = new MqttMessage(payload);
-        v3Message.setQos(qos);
-        v3Message.setRetained(retain);
-        IMqttDeliveryToken deliveryToken = v3Client.publish(topic, v3Message);
-        deliveryToken.setActionCallback(new IMqttActionListener() {
-            @Override
-            public void onSuccess(IMqttToken asyncActionToken) {
-                try {
-                    data.getRtts().add(System.currentTimeMillis() - ((Message) ByteUtils.byteToObj(v3Message.getPayload())).getSendTime());
-                } catch (IOException | ClassNotFoundException e) {
-                    e.printStackTrace();
-                }
-            }
+    private class V3Slot extends Slot implements IMqttActionListener {
+
+        private final SlotMessage v3Message = new SlotMessage();
+
+        V3Slot() {
+            v3Message.setQos(v3PublishParameters.getQos());
+            v3Message.setRetained(v3PublishParameters.isRetain());
+        }
 
-            @Override
-            public void onFailure(IMqttToken asyncActionToken, Throwable exception) {
-                // NO-OP
+        @Override
+        protected void send(byte[] payload) throws IOException {
+            v3Message.buffer = payload;
+            try {
+                v3Client.publish(v3PublishParameters.getTopic(), v3Message, null, this);
+            } catch (MqttException e) {
+                throw new IOException(e);
             }
-        });
-        deliveryToken.waitForCompletion();
+        }
+
+        @Override
+        public void onSuccess(IMqttToken asyncActionToken) {
+            acknowledged();
+        }
+
+        @Override
+        public void onFailure(IMqttToken asyncActionToken, Throwable exception) {
+            failed();
+        }
     }
 
-    public Data getResults() {
-        return data;
+    /**
+     * A message sending the buffer of its slot as it is: {@link MqttMessage#setPayload(byte[])} would copy it at every
+     * publish.
+     */
+    private static class SlotMessage extends MqttMessage {
+
+        private byte[] buffer;
+
+        @Override
+        public byte[] getPayload() {
+            return buffer;
+        }
     }
 }
@@ -0,0 +1,42 @@
+package it.uniupo.mqttv5;
+
+import org.eclipse.paho.mqttv5.client.MqttConnectionOptions;
+
+import java.util.UUID;
+
+public class MqttV5Connection {
+
+    /**
+     * Topic aliases the server may use when delivering to this client, the highest value Paho reads back correctly
+     */
+    public static final int TOPIC_ALIAS_MAXIMUM = 0x7FFF;
+
+    private String hostURI;
+    private String clientID;
+    private MqttConnectionOptions conOpts = new MqttConnectionOptions();
+    private boolean automaticReconnect = false;
+
+    public MqttV5Connection(String hostURI) {
+        this.hostURI = hostURI;
+
+        this.clientID = "mqtt-client-" + UUID.randomUUID().toString();
+        this.conOpts.setTopicAliasMaximum(TOPIC_ALIAS_MAXIMUM);
+    }
+
+    public String getHostURI() {
+        return hostURI;
+    }
+
+    public String getClientID() {
+        return clientID;
+    }
+
+    public MqttConnectionOptions getConOpts() {
+        return conOpts;
+    }
+
+    public boolean isAutomaticReconnectEnabled() {
+        return this.automaticReconnect;
+    }
+
+}
@@ -0,0 +1,256 @@
+package it.uniupo.mqttv5;
+
+import it.uniupo.Mode;
+import it.uniupo.descriptors.Encoding;
+import it.uniupo.descriptors.Executor;
+import it.uniupo.engine.AbstractExecutor;
+import it.uniupo.engine.Engine;
+import it.uniupo.util.PacketSize;
+import it.uniupo.util.PayloadPool;
+import org.eclipse.paho.mqttv5.client.*;
+import org.eclipse.paho.mqttv5.client.persist.MemoryPersistence;
+import org.eclipse.paho.mqttv5.common.MqttException;
+import org.eclipse.paho.mqttv5.common.MqttMessage;
+import org.eclipse.paho.mqttv5.common.packet.MqttProperties;
+import org.eclipse.paho.mqttv5.common.packet.MqttReturnCode;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * The MQTT 5 counterpart of {@link it.uniupo.mqttv3.MqttV3Executor}, measuring the same way.
+ * <p>
+ * It asks the server for topic aliases, which the client then uses on its own: after the first message of a publisher
+ * the topic name is replaced by a two-byte alias. The publish window is never wider than the Receive Maximum of the
+ * server, the number of QoS 1 and 2 messages it accepts unacknowledged from a client, since the client fails the
+ * publishes beyond it.
+ *
+ * @author Lorenzo Ferron
+ * @version 2026.10.18
+ */
+public class MqttV5Executor extends AbstractExecutor implements MqttCallback {
+
+    // the Receive Maximum of a server that does not state one
+    private static final int DEFAULT_RECEIVE_MAXIMUM = 0xFFFF;
+
+    MqttV5Connection v5ConnectionParameters;
+    MqttV5Publish v5PublishParameters;
+    MqttV5Subscribe v5SubscriptionParameters;
+    MqttAsyncClient v5Client;
+    // granted by the server on connection
+    private volatile int receiveMaximum = DEFAULT_RECEIVE_MAXIMUM;
+    private volatile boolean aliased;
+    // guarded by this
+    private boolean aliasSent;
+
+    /**
+     * Initialises the MQTTv5 Executor
+     *
+     * @param config      the descriptor of this executor
+     * @param topic       the full topic
+     * @param hostURI
+     * @param encoding
+     * @param publisherId
+     * @param payloadPool the payloads shared by the publishers of the same config, ignored by subscribers
+     * @param engine      the engine driving this executor
+     */
+    public MqttV5Executor(Executor config, String topic, String hostURI, Encoding encoding, int publisherId,
+                          PayloadPool payloadPool, Engine engine) {
+        super(config, topic, encoding, publisherId, payloadPool, engine);
+        this.v5ConnectionParameters = new MqttV5Connection(hostURI);
+        if (mode == Mode.PUB)
+            this.v5PublishParameters = new MqttV5Publish(config.getPayload(), config.getQos(), topic);
+        else
+            this.v5SubscriptionParameters = new MqttV5Subscribe(topic, config.getQos());
+    }
+
+    @Override
+    public void disconnected(MqttDisconnectResponse disconnectResponse) {
+        if (!v5ConnectionParameters.isAutomaticReconnectEnabled())
+            halt();
+    }
+
+    @Override
+    public void mqttErrorOccurred(MqttException exception) {
+        exception.printStackTrace();
+    }
+
+    @Override
+    public void messageArrived(String topic, MqttMessage message) {
+        arrived(message.getPayload());
+    }
+
+    @Override
+    public void deliveryComplete(IMqttToken token) {
+        // NO-OP
+    }
+
+    @Override
+    public void connectComplete(boolean reconnect, String serverURI) {
+        // NO-OP
+    }
+
+    @Override
+    public void authPacketArrived(int reasonCode, MqttProperties properties) {
+        // NO-OP
+    }
+
+    @Override
+    public void open(CountDownLatch ready) {
+        try {
+            // Create Client: only its keep-alive runs on the scheduler of the engine, as the client would run its
+            // network loops on an executor service too
+            this.v5Client = new MqttAsyncClient(this.v5ConnectionParameters.getHostURI(),
+                    this.v5ConnectionParameters.getClientID(), new MemoryPersistence(),
+                    new TimerPingSender(engine.getScheduler()), null);
+            this.v5Client.setCallback(this);
+
+            // Connect to Server, then subscribe to a topic if needed
+            v5Client.connect(v5ConnectionParameters.getConOpts(), null, new ReadyListener(ready) {
+                @Override
+                public void onSuccess(IMqttToken asyncActionToken) {
+                    MqttProperties granted = asyncActionToken.getResponseProperties();
+                    if (granted != null) {
+                        if (granted.getReceiveMaximum() != null) receiveMaximum = granted.getReceiveMaximum();
+                        aliased = granted.getTopicAliasMaximum() != null && granted.getTopicAliasMaximum() > 0;
+                    }
+                    if (mode == Mode.PUB) {
+                        super.onSuccess(asyncActionToken);
+                        return;
+                    }
+                    try {
+                        v5Client.subscribe(v5SubscriptionParameters.getTopic(), v5SubscriptionParameters.getQos(),
+                                null, new ReadyListener(ready));
+                    } catch (MqttException e) {
+                        onFailure(asyncActionToken, e);
+                    }
+                }
+            });
+        } catch (MqttException e) {
+            e.printStackTrace();
+            ready.countDown();
+        }
+    }
+
+    /**
+     * @return the size of the publish window: the configured one, narrowed to the Receive Maximum of the server for
+     * QoS 1 and 2
+     */
+    @Override
+    public int getInflight() {
+        int inflight = super.getInflight();
+        return v5PublishParameters.getQos() > 0 ? Math.min(inflight, receiveMaximum) : inflight;
+    }
+
+    @Override
+    protected boolean isConnected() {
+        return v5Client.isConnected();
+    }
+
+    @Override
+    protected Slot newSlot() {
+        return new V5Slot();
+    }
+
+    @Override
+    protected int wireSize(int bytes) {
+        // the first message binds the alias to the topic, the next ones carry the alias only
+        int wireBytes = PacketSize.v5Publish(aliasSent ? 0 : topicLength, v5PublishParameters.getQos(),
+                aliased ? PacketSize.TOPIC_ALIAS : 0, bytes);
+        aliasSent = aliased;
+        return wireBytes;
+    }
+
+    @Override
+    public void disconnect(CountDownLatch done) {
+        try {
+            if (v5Client.isConnected())
+                v5Client.disconnect(getDisconnectTimeout(), null, new ReadyListener(done),
+                        MqttReturnCode.RETURN_CODE_SUCCESS, new MqttProperties());
+            else
+                done.countDown();
+        } catch (MqttException e) {
+            e.printStackTrace();
+            done.countDown();
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            this.v5Client.close();
+        } catch (MqttException e) {
+            e.printStackTrace();
+        }
+        super.close();
+    }
+
+    /**
+     * Counts down a latch once an action completes, whatever its outcome.
+     */
+    private static class ReadyListener implements MqttActionListener {
+
+        private final CountDownLatch latch;
+
+        ReadyListener(CountDownLatch latch) {
+            this.latch = latch;
+        }
+
+        @Override
+        public void onSuccess(IMqttToken asyncActionToken) {
+            latch.countDown();
+        }
+
+        @Override
+        public void onFailure(IMqttToken asyncActionToken, Throwable exception) {
+            exception.printStackTrace();
+            latch.countDown();
+        }
+    }
+
+    /**
+     * A slot of the publish window with its own MQTT 5 message.
+     */
+    private class V5Slot extends Slot implements MqttActionListener {
+
+        private final SlotMessage v5Message = new SlotMessage();
+
+        V5Slot() {
+            v5Message.setQos(v5PublishParameters.getQos());
+            v5Message.setRetained(v5PublishParameters.isRetain());
+        }
+
+        @Override
+        protected void send(byte[] payload) throws IOException {
+            v5Message.buffer = payload;
+            try {
+                v5Client.publish(v5PublishParameters.getTopic(), v5Message, null, this);
+            } catch (MqttException e) {
+                throw new IOException(e);
+            }
+        }
+
+        @Override
+        public void onSuccess(IMqttToken asyncActionToken) {
+            acknowledged();
+        }
+
+        @Override
+        public void onFailure(IMqttToken asyncActionToken, Throwable exception) {
+            failed();
+        }
+    }
+
+    /**
+     * A message sending the buffer of its slot as it is.
+     */
+    private static class SlotMessage extends MqttMessage {
+
+        private byte[] buffer;
+
+        @Override
+        public byte[] getPayload() {
+            return buffer;
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package it.uniupo.mqttv5;
+
+public class MqttV5Subscribe {
+
+    private String topic;
+    private int qos = 0;
+    private boolean verbose = false;
+
+    public MqttV5Subscribe(String topic, int qos) {
+        this.topic = topic;
+        this.qos = qos;
+    }
+
+    public String getTopic() {
+        return topic;
+    }
+
+    public int getQos() {
+        return qos;
+    }
+
+    public boolean isVerbose() {
+        return verbose;
+    }
+}
@@ -0,0 +1,114 @@
+package it.uniupo.report;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Compares a benchmark result with a stored one, the baseline.
+ * <p>
+ * The aggregate throughput and the p99 of every RTT and end-to-end latency distribution found in both results are
+ * checked, or the connection rate and the handshake p99 of connection storms, or the highest rate sustained at each QoS
+ * by saturation searches: a metric regresses when it is worse than the baseline by more than the threshold, that is when
+ * a rate drops or a p99 grows by more than that fraction of the baseline value.
+ *
+ * @author Lorenzo Ferron
+ * @version 2026.10.18
+ */
+public class Baseline {
+
+    private static final String P99 = Result.Latency.key(99);
+
+    private final Result baseline;
+    private final double threshold;
+
+    /**
+     * @param baseline  the stored result
+     * @param threshold the tolerated worsening, as a fraction of the baseline value
+     */
+    public Baseline(Result baseline, double threshold) {
+        this.baseline = baseline;
+        this.threshold = threshold;
+    }
+
+    public List<Check> compare(Result current) {
+        List<Check> checks = new ArrayList<>();
+        Result.Summary before = baseline.getAggregate();
+        Result.Summary after = current.getAggregate();
+        if (before != null && after != null) {
+            checks.add(new Check("throughput (msg/s)", before.getThroughput(), after.getThroughput(), false));
+            comparePercentiles("RTT p99 (ms) QoS ", before.getRtt(), after.getRtt(), checks);
+            comparePercentiles("latency p99 (ms) ", before.getLatency(), after.getLatency(), checks);
+        }
+        Result.Storm stormBefore = baseline.getStormAggregate();
+        Result.Storm stormAfter = current.getStormAggregate();
+        if (stormBefore != null && stormAfter != null) {
+            checks.add(new Check("connection rate (conn/s)", stormBefore.getConnectionRate(), stormAfter.getConnectionRate(), false));
+            Map<String, Result.Latency> handshakesBefore = new TreeMap<>();
+            handshakesBefore.put("CONNACK", stormBefore.getConnack());
+            handshakesBefore.put("SUBACK", stormBefore.getSuback());
+            Map<String, Result.Latency> handshakesAfter = new TreeMap<>();
+            handshakesAfter.put("CONNACK", stormAfter.getConnack());
+            handshakesAfter.put("SUBACK", stormAfter.getSuback());
+            comparePercentiles("handshake p99 (ms) ", handshakesBefore, handshakesAfter, checks);
+        }
+        for (Result.Search searchBefore : baseline.getSearches())
+            for (Result.Search searchAfter : current.getSearches())
+                if (searchBefore.getQos() == searchAfter.getQos())
+                    checks.add(new Check("max sustained rate (msg/s) QoS " + searchAfter.getQos(),
+                            searchBefore.getMaxRate(), searchAfter.getMaxRate(), false));
+        return checks;
+    }
+
+    private void comparePercentiles(String prefix, Map<String, Result.Latency> before,
+                                    Map<String, Result.Latency> after, List<Check> checks) {
+        before.forEach((key, latency) -> {
+            Result.Latency other = after.get(key);
+            if (other == null || latency.getCount() == 0 || other.getCount() == 0) return;
+            checks.add(new Check(prefix + key, latency.getPercentiles().get(P99), other.getPercentiles().get(P99), true));
+        });
+    }
+
+    /**
+     * A metric of both results.
+     */
+    public class Check {
+
+        private final String name;
+        private final double baseline;
+        private final double current;
+        private final boolean lowerIsBetter;
+
+        Check(String name, double baseline, double current, boolean lowerIsBetter) {
+            this.name = name;
+            this.baseline = baseline;
+            this.current = current;
+            this.lowerIsBetter = lowerIsBetter;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public double getBaseline() {
+            return baseline;
+        }
+
+        public double getCurrent() {
+            return current;
+        }
+
+        /**
+         * @return the change from the baseline, as a fraction of it
+         */
+        public double getChange() {
+            return baseline == 0 ? 0 : (current - baseline) / baseline;
+        }
+
+        public boolean isRegression() {
+            return lowerIsBetter ? getChange() > threshold : getChange() < -threshold;
+        }
+    }
+
+}
@@ -0,0 +1,253 @@
+package it.uniupo.report;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import it.uniupo.Mode;
+import it.uniupo.stats.ClientMetrics;
+import it.uniupo.stats.MetricsRegistry;
+import it.uniupo.util.HistogramUtils;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryUsage;
+import java.lang.management.OperatingSystemMXBean;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.function.BiConsumer;
+
+/**
+ * A local HTTP endpoint serving the live metrics of the executors and of the generator JVM in the Prometheus text
+ * format, so that a long benchmark can be graphed while it runs, next to the metrics of the broker.
+ * <p>
+ * Executors are grouped by mode, topic and QoS. Counters and percentiles are read from the
+ * {@link MetricsRegistry registry} without blocking the executors and start over at every run; percentiles cover the
+ * run so far. Rates are computed between two scrapes.
+ *
+ * @author Lorenzo Ferron
+ * @version 2026.10.18
+ */
+public class MetricsEndpoint implements AutoCloseable {
+
+    private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+
+    private final HttpServer server;
+    private final MetricsRegistry registry;
+    // guarded by this: the counters at the previous scrape, by group
+    private final Map<Group, long[]> previous = new HashMap<>();
+    private long previousScrape;
+
+    /**
+     * Starts serving {@code /metrics} on the loopback interface.
+     *
+     * @param port     the port to listen on, 0 for an ephemeral one
+     * @param registry the metrics of the executors
+     * @throws IOException if the port cannot be bound
+     */
+    public MetricsEndpoint(int port, MetricsRegistry registry) throws IOException {
+        this.registry = registry;
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        this.server.createContext("/metrics", this::handle);
+        this.server.start();
+    }
+
+    /**
+     * @return the URL the metrics are served at
+     */
+    public String getURL() {
+        InetSocketAddress address = server.getAddress();
+        return "http://" + address.getAddress().getHostAddress() + ":" + address.getPort() + "/metrics";
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            byte[] body = scrape().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * @return the current metrics in the Prometheus text format
+     */
+    synchronized String scrape() {
+        long now = System.nanoTime();
+        double seconds = previousScrape == 0 ? 0 : (now - previousScrape) / 1e9;
+        previousScrape = now;
+        Map<Group, Totals> groups = new TreeMap<>();
+        for (ClientMetrics metrics : registry.getAll())
+            groups.computeIfAbsent(new Group(metrics), group -> new Totals()).add(metrics);
+
+        StringBuilder out = new StringBuilder();
+        family(out, "envqtt_executors", "gauge", "Executors of the current run.");
+        groups.forEach((group, totals) -> sample(out, "envqtt_executors", group.labels(), totals.executors));
+        family(out, "envqtt_sent_messages_total", "counter", "Messages published in the measurement window.");
+        forEach(groups, Mode.PUB, (group, totals) -> sample(out, "envqtt_sent_messages_total", group.labels(), totals.sendMsg));
+        family(out, "envqtt_sent_bytes_total", "counter", "Payload bytes published in the measurement window.");
+        forEach(groups, Mode.PUB, (group, totals) -> sample(out, "envqtt_sent_bytes_total", group.labels(), totals.sendBytes));
+        family(out, "envqtt_received_messages_total", "counter", "Messages received in the measurement window.");
+        forEach(groups, Mode.SUB, (group, totals) -> sample(out, "envqtt_received_messages_total", group.labels(), totals.rcvMsg));
+        family(out, "envqtt_received_bytes_total", "counter", "Payload bytes received in the measurement window.");
+        forEach(groups, Mode.SUB, (group, totals) -> sample(out, "envqtt_received_bytes_total", group.labels(), totals.rcvBytes));
+        family(out, "envqtt_publish_rate", "gauge", "Messages published per second since the previous scrape.");
+        forEach(groups, Mode.PUB, (group, totals) -> sample(out, "envqtt_publish_rate", group.labels(), rate(group, totals.sendMsg, seconds)));
+        family(out, "envqtt_receive_rate", "gauge", "Messages received per second since the previous scrape.");
+        forEach(groups, Mode.SUB, (group, totals) -> sample(out, "envqtt_receive_rate", group.labels(), rate(group, totals.rcvMsg, seconds)));
+        family(out, "envqtt_inflight_messages", "gauge", "Messages published and not acknowledged yet.");
+        forEach(groups, Mode.PUB, (group, totals) -> sample(out, "envqtt_inflight_messages", group.labels(), totals.inflight));
+        family(out, "envqtt_rtt_seconds", "summary", "Publish RTT in the current run.");
+        forEach(groups, Mode.PUB, (group, totals) -> summary(out, "envqtt_rtt_seconds", group, totals.latency));
+        family(out, "envqtt_latency_seconds", "summary", "End-to-end latency in the current run.");
+        forEach(groups, Mode.SUB, (group, totals) -> summary(out, "envqtt_latency_seconds", group, totals.latency));
+        previous.keySet().retainAll(groups.keySet());
+        jvm(out);
+        return out.toString();
+    }
+
+    /**
+     * @return the increase of a counter per second since the previous scrape, taking a new run into account
+     */
+    private double rate(Group group, long total, double seconds) {
+        long[] last = previous.computeIfAbsent(group, g -> new long[]{total});
+        long increase = total >= last[0] ? total - last[0] : total;
+        last[0] = total;
+        return seconds == 0 ? 0 : increase / seconds;
+    }
+
+    private static void jvm(StringBuilder out) {
+        MemoryUsage heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+        family(out, "jvm_memory_heap_bytes", "gauge", "Heap of the generator.");
+        sample(out, "jvm_memory_heap_bytes", "area=\"used\"", heap.getUsed());
+        sample(out, "jvm_memory_heap_bytes", "area=\"committed\"", heap.getCommitted());
+        sample(out, "jvm_memory_heap_bytes", "area=\"max\"", heap.getMax());
+        family(out, "jvm_gc_collection_seconds_total", "counter", "Time spent in garbage collection, by collector.");
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans())
+            sample(out, "jvm_gc_collection_seconds_total", "gc=\"" + escape(gc.getName()) + "\"", Math.max(0, gc.getCollectionTime()) / 1e3);
+        family(out, "jvm_gc_collections_total", "counter", "Garbage collections, by collector.");
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans())
+            sample(out, "jvm_gc_collections_total", "gc=\"" + escape(gc.getName()) + "\"", Math.max(0, gc.getCollectionCount()));
+        family(out, "jvm_threads_current", "gauge", "Live threads of the generator.");
+        sample(out, "jvm_threads_current", null, ManagementFactory.getThreadMXBean().getThreadCount());
+        OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+        if (os instanceof com.sun.management.OperatingSystemMXBean) {
+            com.sun.management.OperatingSystemMXBean sun = (com.sun.management.OperatingSystemMXBean) os;
+            family(out, "process_cpu_seconds_total", "counter", "CPU time used by the generator.");
+            sample(out, "process_cpu_seconds_total", null, sun.getProcessCpuTime() / 1e9);
+            family(out, "process_cpu_usage", "gauge", "Recent CPU usage of the generator, as a fraction of all the processors.");
+            sample(out, "process_cpu_usage", null, Math.max(0, sun.getProcessCpuLoad()));
+        }
+    }
+
+    private static void summary(StringBuilder out, String name, Group group, Histogram histogram) {
+        // the histograms are in microseconds
+        for (double quantile : QUANTILES)
+            sample(out, name, group.labels() + ",quantile=\"" + quantile + "\"",
+                    histogram.getValueAtPercentile(quantile * 100) / 1e6);
+        sample(out, name + "_sum", group.labels(), histogram.getMean() * histogram.getTotalCount() / 1e6);
+        sample(out, name + "_count", group.labels(), histogram.getTotalCount());
+    }
+
+    private static void family(StringBuilder out, String name, String type, String help) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private static void sample(StringBuilder out, String name, String labels, Number value) {
+        out.append(name);
+        if (labels != null) out.append('{').append(labels).append('}');
+        out.append(' ').append(value).append('\n');
+    }
+
+    private static void forEach(Map<Group, Totals> groups, Mode mode, BiConsumer<Group, Totals> action) {
+        groups.forEach((group, totals) -> {
+            if (group.mode == mode) action.accept(group, totals);
+        });
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+
+    /**
+     * The mode, topic and QoS the executors are grouped by.
+     */
+    private static class Group implements Comparable<Group> {
+
+        private final Mode mode;
+        private final String topic;
+        private final int qos;
+
+        Group(ClientMetrics metrics) {
+            this.mode = metrics.getMode();
+            this.topic = metrics.getTopic();
+            this.qos = metrics.getQos();
+        }
+
+        String labels() {
+            return "mode=\"" + mode.name().toLowerCase() + "\",topic=\"" + escape(topic) + "\",qos=\"" + qos + "\"";
+        }
+
+        @Override
+        public int compareTo(Group o) {
+            int c = mode.compareTo(o.mode);
+            if (c == 0) c = topic.compareTo(o.topic);
+            return c == 0 ? Integer.compare(qos, o.qos) : c;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Group group = (Group) o;
+            return qos == group.qos && mode == group.mode && topic.equals(group.topic);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(mode, topic, qos);
+        }
+    }
+
+    /**
+     * The sums of the metrics of the executors of a group.
+     */
+    private static class Totals {
+
+        private final Histogram latency = HistogramUtils.create();
+        private long executors;
+        private long sendMsg;
+        private long sendBytes;
+        private long rcvMsg;
+        private long rcvBytes;
+        private long inflight;
+
+        void add(ClientMetrics metrics) {
+            executors++;
+            sendMsg += metrics.getSendMsg();
+            sendBytes += metrics.getSendBytes();
+            rcvMsg += metrics.getRcvMsg();
+            rcvBytes += metrics.getRcvBytes();
+            inflight += metrics.getInflight();
+            metrics.addLatencyTo(latency);
+        }
+    }
+
+}
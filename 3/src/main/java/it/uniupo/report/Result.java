@@ -0,0 +1,780 @@
+package it.uniupo.report;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.annotations.SerializedName;
+import it.uniupo.descriptors.Environment;
+import it.uniupo.engine.ResourceUsage;
+import it.uniupo.search.SaturationSearch;
+import it.uniupo.stats.Aggregate;
+import it.uniupo.storm.ConnectionStorm;
+import it.uniupo.util.HistogramUtils;
+import org.HdrHistogram.Histogram;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The machine-readable result of a benchmark: the environment it ran, the summary of every run and their aggregate.
+ * <p>
+ * It is written as JSON next to the printed tables, so jobs can read the numbers instead of scraping the text, and it
+ * can be read back to be compared with a later benchmark (see {@link Baseline}).
+ *
+ * @author Lorenzo Ferron
+ * @version 2026.10.18
+ */
+public class Result {
+
+    private static final Gson GSON = new GsonBuilder()
+            .setPrettyPrinting()
+            .serializeSpecialFloatingPointValues()
+            .create();
+
+    @SerializedName("timestamp")
+    private long timestamp = System.currentTimeMillis();
+
+    @SerializedName("hostURI")
+    private String hostURI;
+
+    @SerializedName("environment")
+    private Environment environment;
+
+    @SerializedName("runs")
+    private List<Summary> runs = new ArrayList<>();
+
+    @SerializedName("aggregate")
+    private Summary aggregate;
+
+    @SerializedName("storms")
+    private List<Storm> storms = new ArrayList<>();
+
+    @SerializedName("stormAggregate")
+    private Storm stormAggregate;
+
+    @SerializedName("searches")
+    private List<Search> searches = new ArrayList<>();
+
+    @SerializedName("generator")
+    private List<Generator> generator = new ArrayList<>();
+
+    /**
+     * No args constructor for use in serialization
+     */
+    public Result() {
+        //Empty body...
+    }
+
+    public Result(String hostURI, Environment environment) {
+        this.hostURI = hostURI;
+        this.environment = environment;
+    }
+
+    public static Result read(File file) throws IOException {
+        try (BufferedReader br = Files.newBufferedReader(file.toPath())) {
+            Result result = GSON.fromJson(br, Result.class);
+            if (result == null || result.getAggregate() == null && result.getStormAggregate() == null
+                    && result.getSearches().isEmpty())
+                throw new IOException(file + " is not a benchmark result");
+            return result;
+        }
+    }
+
+    public void write(File file) throws IOException {
+        try (BufferedWriter bw = Files.newBufferedWriter(file.toPath())) {
+            GSON.toJson(this, bw);
+        }
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public String getHostURI() {
+        return hostURI;
+    }
+
+    public Environment getEnvironment() {
+        return environment;
+    }
+
+    public List<Summary> getRuns() {
+        return runs;
+    }
+
+    public Summary getAggregate() {
+        return aggregate;
+    }
+
+    public void setAggregate(Summary aggregate) {
+        this.aggregate = aggregate;
+    }
+
+    public List<Storm> getStorms() {
+        return storms;
+    }
+
+    public Storm getStormAggregate() {
+        return stormAggregate;
+    }
+
+    public void setStormAggregate(Storm stormAggregate) {
+        this.stormAggregate = stormAggregate;
+    }
+
+    public List<Search> getSearches() {
+        return searches;
+    }
+
+    public List<Generator> getGenerator() {
+        return generator;
+    }
+
+    /**
+     * Counts, rates and latency distributions of a run, or of all of them.
+     */
+    public static class Summary {
+
+        @SerializedName("sendMsg")
+        private long sendMsg;
+
+        @SerializedName("rcvMsg")
+        private long rcvMsg;
+
+        @SerializedName("sendBytes")
+        private long sendBytes;
+
+        @SerializedName("rcvBytes")
+        private long rcvBytes;
+
+        /**
+         * Size of the PUBLISH packets sent, headers included
+         */
+        @SerializedName("sendWireBytes")
+        private long sendWireBytes;
+
+        @SerializedName("lostMsg")
+        private long lostMsg;
+
+        @SerializedName("dupMsg")
+        private long dupMsg;
+
+        @SerializedName("reorderedMsg")
+        private long reorderedMsg;
+
+        /**
+         * Messages received too late to tell whether they were unique, left out of the distinct ones so as not to
+         * hide losses
+         */
+        @SerializedName("lateMsg")
+        private long lateMsg;
+
+        /**
+         * Average elapsed time of the executors, in seconds
+         */
+        @SerializedName("elapsedTime")
+        private double elapsedTime;
+
+        /**
+         * Received messages per second
+         */
+        @SerializedName("throughput")
+        private double throughput;
+
+        /**
+         * Received bytes per second
+         */
+        @SerializedName("byteRate")
+        private double byteRate;
+
+        /**
+         * Publish RTT per QoS
+         */
+        @SerializedName("rtt")
+        private Map<String, Latency> rtt = new TreeMap<>();
+
+        /**
+         * End-to-end latency per subscription topic and QoS
+         */
+        @SerializedName("latency")
+        private Map<String, Latency> latency = new TreeMap<>();
+
+        /**
+         * Spread of the messages across the members of each share group, per subscription and QoS
+         */
+        @SerializedName("shares")
+        private Map<String, Share> shares = new TreeMap<>();
+
+        public long getSendMsg() {
+            return sendMsg;
+        }
+
+        public void setSendMsg(long sendMsg) {
+            this.sendMsg = sendMsg;
+        }
+
+        public long getRcvMsg() {
+            return rcvMsg;
+        }
+
+        public void setRcvMsg(long rcvMsg) {
+            this.rcvMsg = rcvMsg;
+        }
+
+        public long getSendBytes() {
+            return sendBytes;
+        }
+
+        public void setSendBytes(long sendBytes) {
+            this.sendBytes = sendBytes;
+        }
+
+        public long getRcvBytes() {
+            return rcvBytes;
+        }
+
+        public void setRcvBytes(long rcvBytes) {
+            this.rcvBytes = rcvBytes;
+        }
+
+        public long getSendWireBytes() {
+            return sendWireBytes;
+        }
+
+        public void setSendWireBytes(long sendWireBytes) {
+            this.sendWireBytes = sendWireBytes;
+        }
+
+        public long getLostMsg() {
+            return lostMsg;
+        }
+
+        public void setLostMsg(long lostMsg) {
+            this.lostMsg = lostMsg;
+        }
+
+        public long getDupMsg() {
+            return dupMsg;
+        }
+
+        public void setDupMsg(long dupMsg) {
+            this.dupMsg = dupMsg;
+        }
+
+        public long getReorderedMsg() {
+            return reorderedMsg;
+        }
+
+        public void setReorderedMsg(long reorderedMsg) {
+            this.reorderedMsg = reorderedMsg;
+        }
+
+        public long getLateMsg() {
+            return lateMsg;
+        }
+
+        public void setLateMsg(long lateMsg) {
+            this.lateMsg = lateMsg;
+        }
+
+        public double getElapsedTime() {
+            return elapsedTime;
+        }
+
+        public void setElapsedTime(double elapsedTime) {
+            this.elapsedTime = elapsedTime;
+        }
+
+        public double getThroughput() {
+            return throughput;
+        }
+
+        public void setThroughput(double throughput) {
+            this.throughput = throughput;
+        }
+
+        public double getByteRate() {
+            return byteRate;
+        }
+
+        public void setByteRate(double byteRate) {
+            this.byteRate = byteRate;
+        }
+
+        public Map<String, Latency> getRtt() {
+            return rtt;
+        }
+
+        public Map<String, Latency> getLatency() {
+            return latency;
+        }
+
+        public Map<String, Share> getShares() {
+            return shares;
+        }
+    }
+
+    /**
+     * How the messages of a share group were spread across its members.
+     */
+    public static class Share {
+
+        @SerializedName("members")
+        private long members;
+
+        @SerializedName("rcvMsg")
+        private long rcvMsg;
+
+        @SerializedName("minMsg")
+        private long minMsg;
+
+        @SerializedName("maxMsg")
+        private long maxMsg;
+
+        /**
+         * Coefficient of variation of the messages received by the members
+         */
+        @SerializedName("variation")
+        private double variation;
+
+        /**
+         * No args constructor for use in serialization
+         */
+        public Share() {
+            //Empty body...
+        }
+
+        public Share(Aggregate.Spread spread) {
+            this.members = spread.getMembers();
+            this.rcvMsg = spread.getRcvMsg();
+            this.minMsg = spread.getMinMsg();
+            this.maxMsg = spread.getMaxMsg();
+            this.variation = spread.getVariation();
+        }
+
+        public long getMembers() {
+            return members;
+        }
+
+        public long getRcvMsg() {
+            return rcvMsg;
+        }
+
+        public long getMinMsg() {
+            return minMsg;
+        }
+
+        public long getMaxMsg() {
+            return maxMsg;
+        }
+
+        public double getVariation() {
+            return variation;
+        }
+    }
+
+    /**
+     * Counts, rate and handshake latencies of a connection storm, or of all of them.
+     */
+    public static class Storm {
+
+        @SerializedName("attempts")
+        private long attempts;
+
+        @SerializedName("connected")
+        private long connected;
+
+        @SerializedName("connectFailures")
+        private long connectFailures;
+
+        @SerializedName("subscribed")
+        private long subscribed;
+
+        @SerializedName("subscribeFailures")
+        private long subscribeFailures;
+
+        /**
+         * Connections lost after being established
+         */
+        @SerializedName("dropped")
+        private long dropped;
+
+        /**
+         * Most connections open at the same time
+         */
+        @SerializedName("peakConnections")
+        private int peakConnections;
+
+        /**
+         * Connections still open at the end of the hold
+         */
+        @SerializedName("sustainedConnections")
+        private int sustainedConnections;
+
+        /**
+         * Established connections per second
+         */
+        @SerializedName("connectionRate")
+        private double connectionRate;
+
+        @SerializedName("connack")
+        private Latency connack;
+
+        @SerializedName("suback")
+        private Latency suback;
+
+        /**
+         * No args constructor for use in serialization
+         */
+        public Storm() {
+            //Empty body...
+        }
+
+        public Storm(ConnectionStorm.Outcome outcome) {
+            this.attempts = outcome.getAttempts();
+            this.connected = outcome.getConnected();
+            this.connectFailures = outcome.getConnectFailures();
+            this.subscribed = outcome.getSubscribed();
+            this.subscribeFailures = outcome.getSubscribeFailures();
+            this.dropped = outcome.getDropped();
+            this.peakConnections = outcome.getPeakConnections();
+            this.sustainedConnections = outcome.getSustainedConnections();
+            this.connectionRate = outcome.getConnectionRate();
+            this.connack = new Latency(outcome.getConnack());
+            this.suback = new Latency(outcome.getSuback());
+        }
+
+        public long getAttempts() {
+            return attempts;
+        }
+
+        public long getConnected() {
+            return connected;
+        }
+
+        public long getConnectFailures() {
+            return connectFailures;
+        }
+
+        public long getSubscribed() {
+            return subscribed;
+        }
+
+        public long getSubscribeFailures() {
+            return subscribeFailures;
+        }
+
+        public long getDropped() {
+            return dropped;
+        }
+
+        public int getPeakConnections() {
+            return peakConnections;
+        }
+
+        public int getSustainedConnections() {
+            return sustainedConnections;
+        }
+
+        public double getConnectionRate() {
+            return connectionRate;
+        }
+
+        public Latency getConnack() {
+            return connack;
+        }
+
+        public Latency getSuback() {
+            return suback;
+        }
+    }
+
+    /**
+     * The probes of a saturation search at one QoS and the highest rate sustained.
+     */
+    public static class Search {
+
+        @SerializedName("qos")
+        private int qos;
+
+        /**
+         * Highest offered rate within the limits, in msg/s
+         */
+        @SerializedName("maxRate")
+        private double maxRate;
+
+        @SerializedName("probes")
+        private List<Probe> probes = new ArrayList<>();
+
+        /**
+         * No args constructor for use in serialization
+         */
+        public Search() {
+            //Empty body...
+        }
+
+        public Search(SaturationSearch.Outcome outcome) {
+            this.qos = outcome.getQos();
+            this.maxRate = outcome.getMaxRate();
+            outcome.getProbes().forEach(probe -> probes.add(new Probe(probe)));
+        }
+
+        public int getQos() {
+            return qos;
+        }
+
+        public double getMaxRate() {
+            return maxRate;
+        }
+
+        public List<Probe> getProbes() {
+            return probes;
+        }
+    }
+
+    /**
+     * The outcome of the runs of a saturation search at one offered rate.
+     */
+    public static class Probe {
+
+        @SerializedName("offeredRate")
+        private double offeredRate;
+
+        @SerializedName("publishRate")
+        private double publishRate;
+
+        /**
+         * Highest p99 of any RTT or end-to-end latency, in milliseconds
+         */
+        @SerializedName("p99")
+        private double p99;
+
+        @SerializedName("loss")
+        private double loss;
+
+        /**
+         * Messages due and never published, as the publishers fell behind the offered rate
+         */
+        @SerializedName("unsentMsg")
+        private long unsentMsg;
+
+        @SerializedName("sustainable")
+        private boolean sustainable;
+
+        /**
+         * No args constructor for use in serialization
+         */
+        public Probe() {
+            //Empty body...
+        }
+
+        public Probe(SaturationSearch.Probe probe) {
+            this.offeredRate = probe.getOfferedRate();
+            this.publishRate = probe.getPublishRate();
+            this.p99 = probe.getP99();
+            this.loss = probe.getLoss();
+            this.unsentMsg = probe.getUnsentMsg();
+            this.sustainable = probe.isSustainable();
+        }
+
+        public double getOfferedRate() {
+            return offeredRate;
+        }
+
+        public double getPublishRate() {
+            return publishRate;
+        }
+
+        public double getP99() {
+            return p99;
+        }
+
+        public double getLoss() {
+            return loss;
+        }
+
+        public long getUnsentMsg() {
+            return unsentMsg;
+        }
+
+        public boolean isSustainable() {
+            return sustainable;
+        }
+    }
+
+    /**
+     * The resources used by the generator in the measurement window of a run.
+     */
+    public static class Generator {
+
+        /**
+         * CPU used as a fraction of all the processors
+         */
+        @SerializedName("cpuUsage")
+        private double cpuUsage;
+
+        /**
+         * In milliseconds
+         */
+        @SerializedName("cpuTime")
+        private double cpuTime;
+
+        @SerializedName("processors")
+        private int processors;
+
+        @SerializedName("gcCount")
+        private long gcCount;
+
+        /**
+         * In milliseconds
+         */
+        @SerializedName("gcTime")
+        private long gcTime;
+
+        /**
+         * In bytes per second, -1 if the JVM does not tell
+         */
+        @SerializedName("allocationRate")
+        private double allocationRate;
+
+        @SerializedName("threads")
+        private int threads;
+
+        @SerializedName("pahoThreads")
+        private int pahoThreads;
+
+        @SerializedName("cpuBound")
+        private boolean cpuBound;
+
+        @SerializedName("gcBound")
+        private boolean gcBound;
+
+        /**
+         * No args constructor for use in serialization
+         */
+        public Generator() {
+            //Empty body...
+        }
+
+        public Generator(ResourceUsage usage) {
+            this.cpuUsage = usage.getCpuUsage();
+            this.cpuTime = usage.getCpuTime() / 1e6;
+            this.processors = usage.getProcessors();
+            this.gcCount = usage.getGcCount();
+            this.gcTime = usage.getGcTime();
+            this.allocationRate = usage.getAllocationRate();
+            this.threads = usage.getThreads();
+            this.pahoThreads = usage.getPahoThreads();
+            this.cpuBound = usage.isCpuBound();
+            this.gcBound = usage.isGcBound();
+        }
+
+        public double getCpuUsage() {
+            return cpuUsage;
+        }
+
+        public double getCpuTime() {
+            return cpuTime;
+        }
+
+        public int getProcessors() {
+            return processors;
+        }
+
+        public long getGcCount() {
+            return gcCount;
+        }
+
+        public long getGcTime() {
+            return gcTime;
+        }
+
+        public double getAllocationRate() {
+            return allocationRate;
+        }
+
+        public int getThreads() {
+            return threads;
+        }
+
+        public int getPahoThreads() {
+            return pahoThreads;
+        }
+
+        public boolean isCpuBound() {
+            return cpuBound;
+        }
+
+        public boolean isGcBound() {
+            return gcBound;
+        }
+    }
+
+    /**
+     * The distribution of a latency histogram, in milliseconds.
+     */
+    public static class Latency {
+
+        @SerializedName("count")
+        private long count;
+
+        @SerializedName("mean")
+        private double mean;
+
+        @SerializedName("percentiles")
+        private Map<String, Double> percentiles = new LinkedHashMap<>();
+
+        @SerializedName("max")
+        private double max;
+
+        /**
+         * No args constructor for use in serialization
+         */
+        public Latency() {
+            //Empty body...
+        }
+
+        public Latency(Histogram histogram) {
+            this.count = histogram.getTotalCount();
+            this.mean = HistogramUtils.meanMillis(histogram);
+            for (double percentile : HistogramUtils.PERCENTILES)
+                percentiles.put(key(percentile), HistogramUtils.percentileMillis(histogram, percentile));
+            this.max = HistogramUtils.maxMillis(histogram);
+        }
+
+        /**
+         * @param percentile
+         * @return the name of a percentile, as in {@code p99.9}
+         */
+        public static String key(double percentile) {
+            return "p" + new DecimalFormat("0.#", DecimalFormatSymbols.getInstance(Locale.ROOT)).format(percentile);
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public double getMean() {
+            return mean;
+        }
+
+        public Map<String, Double> getPercentiles() {
+            return percentiles;
+        }
+
+        public double getMax() {
+            return max;
+        }
+    }
+
+}
@@ -0,0 +1,291 @@
+package it.uniupo.search;
+
+import it.uniupo.descriptors.Environment;
+import it.uniupo.descriptors.Executor;
+import it.uniupo.descriptors.Search;
+import it.uniupo.descriptors.Strategy;
+import it.uniupo.stats.Aggregate;
+import it.uniupo.util.HistogramUtils;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.function.Consumer;
+
+/**
+ * Finds the highest publish rate a broker sustains within a p99 latency and a loss limit.
+ * <p>
+ * The offered rate is the one of all the publishers together, split among them in proportion to the rate of their
+ * config, or evenly if they publish in closed loop. Every probe runs all the runs of the environment at one rate, each
+ * lasting the duration of the search instead of the timeout of the environment, and it sustains the rate only if the
+ * publishers kept up with it as well as the broker did: a generator falling behind its schedule would otherwise
+ * report a rate never reached. A step search raises the rate until a probe breaks a limit, a binary search doubles it and then bisects between the
+ * last sustained rate and the first broken one. The search is repeated for each QoS, applied to all the configs, which
+ * are restored once it is over.
+ *
+ * @author Lorenzo Ferron
+ * @version 2026.10.18
+ */
+public class SaturationSearch {
+
+    /**
+     * The fraction of the offered rate a probe may fall short of, in published or in due messages.
+     */
+    public static final double RATE_TOLERANCE = 0.05;
+
+    private final Environment env;
+    private final Search search;
+    private final List<Executor> publishers = new ArrayList<>();
+    private final double totalWeight;
+
+    /**
+     * @param env an environment with a search
+     * @throws IllegalArgumentException if the environment has no publishers
+     */
+    public SaturationSearch(Environment env) {
+        this.env = env;
+        this.search = env.getSearch();
+        double weight = 0;
+        for (Executor config : env.getConfigs())
+            if (config.getPayload() != null) {
+                publishers.add(config);
+                weight += getWeight(config) * config.getSize();
+            }
+        if (weight == 0)
+            throw new IllegalArgumentException("A saturation search needs publishers");
+        this.totalWeight = weight;
+    }
+
+    /**
+     * @return the QoS levels to search, the ones of the publishers unless the search lists them
+     */
+    public List<Integer> getQosLevels() {
+        if (search.getQos() != null) return search.getQos();
+        TreeSet<Integer> levels = new TreeSet<>();
+        publishers.forEach(config -> levels.add(config.getQos()));
+        return new ArrayList<>(levels);
+    }
+
+    /**
+     * @param qos      the QoS of all the configs
+     * @param trial    runs the environment as it is configured at the time
+     * @param listener told of every probe once it is over
+     * @return the probes and the highest sustained rate
+     * @throws IOException
+     * @throws InterruptedException
+     */
+    public Outcome run(int qos, Trial trial, Consumer<Probe> listener) throws IOException, InterruptedException {
+        List<Executor> configs = env.getConfigs();
+        int[] qosLevels = configs.stream().mapToInt(Executor::getQos).toArray();
+        double[] rates = configs.stream().mapToDouble(Executor::getRate).toArray();
+        double[] weights = configs.stream().mapToDouble(SaturationSearch::getWeight).toArray();
+        int timeout = env.getTimeout();
+        configs.forEach(config -> config.setQos(qos));
+        env.setTimeout(search.getDuration());
+        List<Probe> probes = new ArrayList<>();
+        try {
+            double sustained = 0;
+            double broken = Double.POSITIVE_INFINITY;
+            double rate = Math.min(search.getFrom(), search.getTo());
+            while (true) {
+                Probe probe = probe(qos, rate, weights, trial);
+                probes.add(probe);
+                listener.accept(probe);
+                if (!probe.isSustainable()) {
+                    broken = rate;
+                    break;
+                }
+                sustained = rate;
+                if (rate >= search.getTo()) break;
+                rate = Math.min(search.getTo(), search.getStrategy() == Strategy.STEP ? rate + search.getStep() : rate * 2);
+            }
+            if (search.getStrategy() == Strategy.BINARY)
+                while (broken != Double.POSITIVE_INFINITY && broken - sustained > search.getStep()) {
+                    rate = (sustained + broken) / 2;
+                    Probe probe = probe(qos, rate, weights, trial);
+                    probes.add(probe);
+                    listener.accept(probe);
+                    if (probe.isSustainable())
+                        sustained = rate;
+                    else
+                        broken = rate;
+                }
+            return new Outcome(qos, sustained, probes);
+        } finally {
+            env.setTimeout(timeout);
+            for (int i = 0; i < configs.size(); i++) {
+                configs.get(i).setQos(qosLevels[i]);
+                configs.get(i).setRate(rates[i]);
+            }
+        }
+    }
+
+    private Probe probe(int qos, double rate, double[] weights, Trial trial) throws IOException, InterruptedException {
+        List<Executor> configs = env.getConfigs();
+        for (int i = 0; i < configs.size(); i++)
+            if (configs.get(i).getPayload() != null)
+                configs.get(i).setRate(rate * weights[i] / totalWeight);
+        List<Aggregate> runs = trial.run();
+        Aggregate total = new Aggregate();
+        double elapsedTime = 0;
+        for (Aggregate run : runs) {
+            elapsedTime += run.getAverageElapsedTime() / 1000;
+            total.merge(run);
+        }
+        double p99 = 0;
+        for (Histogram histogram : total.getRtt().values())
+            if (histogram.getTotalCount() > 0)
+                p99 = Math.max(p99, HistogramUtils.percentileMillis(histogram, 99));
+        for (Histogram histogram : total.getLatency().values())
+            if (histogram.getTotalCount() > 0)
+                p99 = Math.max(p99, HistogramUtils.percentileMillis(histogram, 99));
+        long lost = total.getLostMsg(env.getEncoding());
+        double loss = lost == 0 ? 0 : lost / (double) (total.getRcvMsg() + lost);
+        double publishRate = elapsedTime == 0 ? 0 : total.getSendMsg() / elapsedTime;
+        long unsent = total.getUnsentMsg();
+        boolean sustainable = total.getSendMsg() > 0 && p99 <= search.getP99() && loss <= search.getLoss()
+                && publishRate >= (1 - RATE_TOLERANCE) * rate
+                && unsent <= RATE_TOLERANCE * (total.getSendMsg() + unsent);
+        return new Probe(qos, rate, publishRate, p99, loss, unsent, sustainable);
+    }
+
+    /**
+     * @return the share of the offered rate of each publisher of a config, relative to the others
+     */
+    private static double getWeight(Executor config) {
+        if (config.getPayload() == null) return 0;
+        return config.getRate() > 0 ? config.getRate() : 1;
+    }
+
+    /**
+     * Runs the environment once, that is all of its runs.
+     */
+    @FunctionalInterface
+    public interface Trial {
+
+        /**
+         * @return the aggregate of each run
+         * @throws IOException
+         * @throws InterruptedException
+         */
+        List<Aggregate> run() throws IOException, InterruptedException;
+    }
+
+    /**
+     * The outcome of the runs at one offered rate.
+     */
+    public static class Probe {
+
+        private final int qos;
+        private final double offeredRate;
+        private final double publishRate;
+        private final double p99;
+        private final double loss;
+        private final long unsentMsg;
+        private final boolean sustainable;
+
+        Probe(int qos, double offeredRate, double publishRate, double p99, double loss, long unsentMsg,
+              boolean sustainable) {
+            this.qos = qos;
+            this.offeredRate = offeredRate;
+            this.publishRate = publishRate;
+            this.p99 = p99;
+            this.loss = loss;
+            this.unsentMsg = unsentMsg;
+            this.sustainable = sustainable;
+        }
+
+        public int getQos() {
+            return qos;
+        }
+
+        /**
+         * @return the rate of all the publishers together, in msg/s
+         */
+        public double getOfferedRate() {
+            return offeredRate;
+        }
+
+        /**
+         * @return the rate actually published in the measurement window, in msg/s
+         */
+        public double getPublishRate() {
+            return publishRate;
+        }
+
+        /**
+         * @return the highest p99 of any RTT or end-to-end latency, in milliseconds
+         */
+        public double getP99() {
+            return p99;
+        }
+
+        /**
+         * @return the fraction of the messages lost
+         */
+        public double getLoss() {
+            return loss;
+        }
+
+        /**
+         * @return the messages due in the measurement windows and never published, as the publishers fell behind
+         */
+        public long getUnsentMsg() {
+            return unsentMsg;
+        }
+
+        /**
+         * @return whether the latency and the losses are within the limits, and the publishers kept up with the
+         * offered rate within {@link #RATE_TOLERANCE}
+         */
+        public boolean isSustainable() {
+            return sustainable;
+        }
+    }
+
+    /**
+     * The probes of the search at one QoS.
+     */
+    public static class Outcome {
+
+        private final int qos;
+        private final double maxRate;
+        private final List<Probe> probes;
+
+        Outcome(int qos, double maxRate, List<Probe> probes) {
+            this.qos = qos;
+            this.maxRate = maxRate;
+            this.probes = Collections.unmodifiableList(probes);
+        }
+
+        public int getQos() {
+            return qos;
+        }
+
+        /**
+         * @return the highest offered rate sustained, in msg/s, 0 if not even the first one was
+         */
+        public double getMaxRate() {
+            return maxRate;
+        }
+
+        /**
+         * @return the probe at the highest sustained rate, {@code null} if none
+         */
+        public Probe getBest() {
+            return probes.stream().filter(probe -> probe.isSustainable() && probe.getOfferedRate() == maxRate)
+                    .findFirst().orElse(null);
+        }
+
+        /**
+         * @return the probes, in the order they were run
+         */
+        public List<Probe> getProbes() {
+            return probes;
+        }
+    }
+
+}
@@ -0,0 +1,429 @@
+package it.uniupo.stats;
+
+import it.uniupo.Data;
+import it.uniupo.Mode;
+import it.uniupo.descriptors.Encoding;
+import it.uniupo.util.HistogramUtils;
+import it.uniupo.util.SharedSubscription;
+import org.HdrHistogram.Histogram;
+import org.eclipse.paho.client.mqttv3.MqttTopic;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.function.BiConsumer;
+
+/**
+ * Folds the results of the executors into one accumulator per mode, topic and QoS.
+ * <p>
+ * Every {@link Data} is read once, so building an aggregate is linear in the number of executors, and aggregates of
+ * different runs can be merged. Reports are then computed from the accumulators only: their cost depends on the
+ * number of distinct topics, not of executors.
+ * <p>
+ * Losses are checked against the publishers of the same run, so they are settled before an aggregate is merged and
+ * from then on it only accepts other aggregates. The members of a share group split the messages among them, so the
+ * group counts as one logical consumer.
+ *
+ * @author Lorenzo Ferron
+ * @version 2026.10.18
+ */
+public class Aggregate {
+
+    private final Map<Key, Accumulator> accumulators = new HashMap<>();
+    private long estimatedLostMsg;
+    private boolean settled;
+    private boolean latencyDropped;
+
+    /**
+     * Folds the results of an executor.
+     *
+     * @param data the results
+     * @return this aggregate
+     * @throws IllegalStateException if the aggregate was already settled
+     */
+    public Aggregate add(Data data) {
+        if (settled) throw new IllegalStateException("Aggregate already settled");
+        accumulators.computeIfAbsent(new Key(data.getMode(), data.getTopic(), data.getQos()), Accumulator::new).add(data);
+        return this;
+    }
+
+    /**
+     * Folds another aggregate, e.g. of another run, into this one.
+     *
+     * @param other the aggregate to merge
+     * @return this aggregate
+     */
+    public Aggregate merge(Aggregate other) {
+        settle();
+        other.settle();
+        estimatedLostMsg += other.estimatedLostMsg;
+        latencyDropped |= other.latencyDropped;
+        other.accumulators.forEach((key, accumulator) -> accumulators.computeIfAbsent(key, Accumulator::new).merge(accumulator));
+        return this;
+    }
+
+    /**
+     * Folds the aggregate of another part of the same run, e.g. of another process, into this one: losses are then
+     * checked against the publishers of both.
+     *
+     * @param other the aggregate to combine
+     * @return this aggregate
+     * @throws IllegalStateException if either aggregate was already settled
+     */
+    public Aggregate combine(Aggregate other) {
+        if (settled || other.settled) throw new IllegalStateException("Aggregate already settled");
+        latencyDropped |= other.latencyDropped;
+        other.accumulators.forEach((key, accumulator) -> accumulators.computeIfAbsent(key, Accumulator::new).merge(accumulator));
+        return this;
+    }
+
+    /**
+     * Leaves the end-to-end latencies out of this aggregate and of the ones it is merged into, e.g. because they were
+     * measured between the {@link System#nanoTime()} clocks of different hosts. Counts and RTTs are kept.
+     *
+     * @return this aggregate
+     */
+    public Aggregate dropLatency() {
+        latencyDropped = true;
+        return this;
+    }
+
+    /**
+     * @return whether the end-to-end latencies were left out
+     */
+    public boolean isLatencyDropped() {
+        return latencyDropped;
+    }
+
+    public long getSendMsg() {
+        return accumulators.values().stream().mapToLong(a -> a.sendMsg).sum();
+    }
+
+    public long getRcvMsg() {
+        return accumulators.values().stream().mapToLong(a -> a.rcvMsg).sum();
+    }
+
+    public long getSendBytes() {
+        return accumulators.values().stream().mapToLong(a -> a.sendBytes).sum();
+    }
+
+    public long getRcvBytes() {
+        return accumulators.values().stream().mapToLong(a -> a.rcvBytes).sum();
+    }
+
+    /**
+     * @return the size of the PUBLISH packets sent, headers included
+     */
+    public long getSendWireBytes() {
+        return accumulators.values().stream().mapToLong(a -> a.sendWireBytes).sum();
+    }
+
+    /**
+     * @return the messages due in the measurement window and never published, see {@link Data#getUnsentMsg()}
+     */
+    public long getUnsentMsg() {
+        return accumulators.values().stream().mapToLong(a -> a.unsentMsg).sum();
+    }
+
+    /**
+     * @return the average elapsed time of the executors in milliseconds
+     */
+    public double getAverageElapsedTime() {
+        long executors = accumulators.values().stream().mapToLong(a -> a.executors).sum();
+        return executors == 0 ? 0 : accumulators.values().stream().mapToLong(a -> a.elapsedTime).sum() / (double) executors;
+    }
+
+    /**
+     * @return the average of the publishers' mean RTT in milliseconds, by QoS
+     */
+    public Map<Integer, Double> getAverageRTT() {
+        Map<Integer, double[]> sums = new TreeMap<>();
+        forEach(Mode.PUB, (key, a) -> {
+            double[] sum = sums.computeIfAbsent(key.qos, qos -> new double[2]);
+            sum[0] += a.averageRTT;
+            sum[1] += a.executors;
+        });
+        Map<Integer, Double> averages = new TreeMap<>();
+        sums.forEach((qos, sum) -> averages.put(qos, sum[0] / sum[1]));
+        return averages;
+    }
+
+    /**
+     * @return the RTT histograms in microseconds, by QoS
+     */
+    public Map<Integer, Histogram> getRtt() {
+        Map<Integer, Histogram> rtt = new TreeMap<>();
+        forEach(Mode.PUB, (key, a) -> rtt.computeIfAbsent(key.qos, qos -> HistogramUtils.create()).add(a.histogram));
+        return rtt;
+    }
+
+    /**
+     * @return the end-to-end latency histograms in microseconds, by subscription topic and QoS
+     */
+    public Map<String, Histogram> getLatency() {
+        Map<String, Histogram> latency = new TreeMap<>();
+        if (latencyDropped) return latency;
+        forEach(Mode.SUB, (key, a) -> latency.put(key.getName(), a.histogram));
+        return latency;
+    }
+
+    /**
+     * Checks the messages received by the subscribers against the ones sent by the publishers matching their topic,
+     * wildcards included. It is exact only when publishers stamp their messages with sequence numbers.
+     *
+     * @return the received, lost, duplicated, out-of-order and late messages, by subscription topic and QoS
+     */
+    public Map<String, long[]> getSequences() {
+        settle();
+        Map<String, long[]> sequences = new TreeMap<>();
+        forEach(Mode.SUB, (key, a) -> sequences.put(key.getName(), new long[]{a.rcvMsg, a.lostMsg, a.dupMsg, a.reorderedMsg,
+                a.lateMsg}));
+        return sequences;
+    }
+
+    /**
+     * @return how the messages were spread across the members of each share group, by subscription and QoS
+     */
+    public Map<String, Spread> getSpreads() {
+        Map<String, Spread> spreads = new TreeMap<>();
+        forEach(Mode.SUB, (key, a) -> {
+            if (SharedSubscription.isShared(key.topic))
+                spreads.put(key.getName(), new Spread(a.executors, a.rcvMsg, a.minMemberMsg, a.maxMemberMsg, a.memberMsgSquares));
+        });
+        return spreads;
+    }
+
+    /**
+     * Estimates the lost messages from the totals only, as if every subscriber should have received all the messages
+     * published on its very topic. It is not precise when wildcards are used.
+     *
+     * @return the estimated lost messages
+     */
+    public long getEstimatedLostMsg() {
+        settle();
+        return estimatedLostMsg;
+    }
+
+    /**
+     * @param encoding the encoding of the messages
+     * @return the lost messages, exact from the sequence numbers with the probe encoding, estimated otherwise
+     */
+    public long getLostMsg(Encoding encoding) {
+        if (encoding != Encoding.PROBE) return getEstimatedLostMsg();
+        return getSequences().values().stream().mapToLong(counts -> counts[1]).sum();
+    }
+
+    /**
+     * Computes the losses of the run folded so far.
+     */
+    private void settle() {
+        if (settled) return;
+        settled = true;
+        Map<String, Long> expected = new HashMap<>();
+        forEach(Mode.SUB, (key, a) -> {
+            long sent = expected.computeIfAbsent(SharedSubscription.getTopic(key.topic), this::getSendMsgMatching);
+            a.lostMsg = Math.max(0, getConsumers(key, a) * sent - a.uniqueMsg);
+        });
+        Map<String, Long> sent = new HashMap<>();
+        forEach(Mode.PUB, (key, a) -> sent.merge(key.topic, a.sendMsg, Long::sum));
+        Map<String, long[]> received = new HashMap<>();
+        forEach(Mode.SUB, (key, a) -> {
+            long[] counts = received.computeIfAbsent(key.topic, topic -> new long[2]);
+            counts[0] += getConsumers(key, a);
+            counts[1] += a.rcvMsg;
+        });
+        for (Map.Entry<String, long[]> entry : received.entrySet())
+            estimatedLostMsg += sent.getOrDefault(SharedSubscription.getTopic(entry.getKey()), 0L) * entry.getValue()[0]
+                    - entry.getValue()[1];
+    }
+
+    /**
+     * @return the subscribers expected to receive every message: the executors, or one for a share group
+     */
+    private static long getConsumers(Key key, Accumulator accumulator) {
+        return SharedSubscription.isShared(key.topic) ? 1 : accumulator.executors;
+    }
+
+    /**
+     * @param filter a subscription topic
+     * @return the messages sent on the topics matching the filter
+     */
+    private long getSendMsgMatching(String filter) {
+        long sent = 0;
+        for (Map.Entry<Key, Accumulator> entry : accumulators.entrySet())
+            if (entry.getKey().mode == Mode.PUB && MqttTopic.isMatched(filter, entry.getKey().topic))
+                sent += entry.getValue().sendMsg;
+        return sent;
+    }
+
+    private void forEach(Mode mode, BiConsumer<Key, Accumulator> action) {
+        accumulators.forEach((key, accumulator) -> {
+            if (key.mode == mode) action.accept(key, accumulator);
+        });
+    }
+
+    /**
+     * The mode, topic and QoS the executors are grouped by.
+     */
+    private static class Key {
+
+        private final Mode mode;
+        private final String topic;
+        private final int qos;
+
+        Key(Mode mode, String topic, int qos) {
+            this.mode = mode;
+            this.topic = topic;
+            this.qos = qos;
+        }
+
+        String getName() {
+            return topic + " (QoS " + qos + ")";
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Key key = (Key) o;
+            return qos == key.qos && mode == key.mode && topic.equals(key.topic);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(mode, topic, qos);
+        }
+    }
+
+    /**
+     * The sums of the results of the executors sharing a key.
+     */
+    private static class Accumulator {
+
+        private final Mode mode;
+        private final Histogram histogram = HistogramUtils.create();
+        private long executors;
+        private long sendMsg;
+        private long rcvMsg;
+        private long sendBytes;
+        private long rcvBytes;
+        private long sendWireBytes;
+        private long unsentMsg;
+        private long elapsedTime;
+        private double averageRTT;
+        private long uniqueMsg;
+        private long lostMsg;
+        private long dupMsg;
+        private long reorderedMsg;
+        private long lateMsg;
+        // received messages per subscriber, to tell how evenly a share group is served
+        private long minMemberMsg = Long.MAX_VALUE;
+        private long maxMemberMsg;
+        private double memberMsgSquares;
+
+        Accumulator(Key key) {
+            this.mode = key.mode;
+        }
+
+        void add(Data data) {
+            executors++;
+            sendMsg += data.getSendMsg();
+            rcvMsg += data.getRcvMsg();
+            sendBytes += data.getSendBytes();
+            rcvBytes += data.getRcvBytes();
+            sendWireBytes += data.getSendWireBytes();
+            unsentMsg += data.getUnsentMsg();
+            elapsedTime += data.getElapsedTime();
+            if (mode == Mode.PUB) {
+                histogram.add(data.getRtt());
+                averageRTT += data.getAverageRTT();
+            } else {
+                histogram.add(data.getLatency());
+                for (long unique : data.getRcvMsgByPublisher().values()) uniqueMsg += unique;
+                dupMsg += data.getDupMsg();
+                reorderedMsg += data.getReorderedMsg();
+                lateMsg += data.getLateMsg();
+                minMemberMsg = Math.min(minMemberMsg, data.getRcvMsg());
+                maxMemberMsg = Math.max(maxMemberMsg, data.getRcvMsg());
+                memberMsgSquares += (double) data.getRcvMsg() * data.getRcvMsg();
+            }
+        }
+
+        void merge(Accumulator other) {
+            executors += other.executors;
+            sendMsg += other.sendMsg;
+            rcvMsg += other.rcvMsg;
+            sendBytes += other.sendBytes;
+            rcvBytes += other.rcvBytes;
+            sendWireBytes += other.sendWireBytes;
+            unsentMsg += other.unsentMsg;
+            elapsedTime += other.elapsedTime;
+            histogram.add(other.histogram);
+            averageRTT += other.averageRTT;
+            uniqueMsg += other.uniqueMsg;
+            lostMsg += other.lostMsg;
+            dupMsg += other.dupMsg;
+            reorderedMsg += other.reorderedMsg;
+            lateMsg += other.lateMsg;
+            minMemberMsg = Math.min(minMemberMsg, other.minMemberMsg);
+            maxMemberMsg = Math.max(maxMemberMsg, other.maxMemberMsg);
+            memberMsgSquares += other.memberMsgSquares;
+        }
+    }
+
+    /**
+     * How the messages of a share group were spread across its members, over all runs.
+     */
+    public static class Spread {
+
+        private final long members;
+        private final long rcvMsg;
+        private final long minMsg;
+        private final long maxMsg;
+        private final double squares;
+
+        Spread(long members, long rcvMsg, long minMsg, long maxMsg, double squares) {
+            this.members = members;
+            this.rcvMsg = rcvMsg;
+            this.minMsg = minMsg;
+            this.maxMsg = maxMsg;
+            this.squares = squares;
+        }
+
+        /**
+         * @return the members of the group, once per run
+         */
+        public long getMembers() {
+            return members;
+        }
+
+        public long getRcvMsg() {
+            return rcvMsg;
+        }
+
+        /**
+         * @return the fewest messages received by a member in a run
+         */
+        public long getMinMsg() {
+            return minMsg;
+        }
+
+        /**
+         * @return the most messages received by a member in a run
+         */
+        public long getMaxMsg() {
+            return maxMsg;
+        }
+
+        /**
+         * @return the coefficient of variation of the messages received by the members: 0 when they are spread evenly
+         */
+        public double getVariation() {
+            double mean = rcvMsg / (double) members;
+            if (mean == 0) return 0;
+            return Math.sqrt(Math.max(0, squares / members - mean * mean)) / mean;
+        }
+    }
+
+}
@@ -0,0 +1,263 @@
+package it.uniupo.stats;
+
+import it.uniupo.Data;
+import it.uniupo.Mode;
+import it.uniupo.util.HistogramUtils;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The live metrics of an executor, safe to update from any number of callback threads at once.
+ * <p>
+ * Counters are {@link LongAdder}s and latencies go to a lock-free {@link Recorder}, so recording never blocks nor
+ * contends on a shared cache line, and both can be read while they are written: by samplers during the run, and by
+ * {@link #snapshot()} at its end. The histograms are compact and the sampled ones exist only while a sampler is
+ * attached, so an idle client costs a few KiB and thousands of them fit in a small heap.
+ *
+ * @author Lorenzo Ferron
+ * @version 2026.10.18
+ */
+public class ClientMetrics {
+
+    private final int id;
+    private final Mode mode;
+    private final String topic;
+    private final int qos;
+    private final LongAdder sendMsg = new LongAdder();
+    private final LongAdder sendBytes = new LongAdder();
+    private final LongAdder sendWireBytes = new LongAdder();
+    private final LongAdder rcvMsg = new LongAdder();
+    private final LongAdder rcvBytes = new LongAdder();
+    private final LongAdder inflight = new LongAdder();
+    private final Recorder recorder = HistogramUtils.createRecorder();
+    // guarded by recorder: all the latencies, and the ones not sampled yet once sampling began
+    private final Histogram histogram = HistogramUtils.createCompact();
+    private Histogram sampled;
+    private Histogram spare;
+    private Histogram interval;
+    // guarded by this, by publisher id: a subscriber hears from few of them, whatever their ids
+    private final Map<Integer, SequenceTracker> trackers = new HashMap<>();
+    private volatile long elapsedTime;
+    private volatile long unsentMsg;
+
+    /**
+     * @param id    the id of the executor, which publishers stamp on their messages
+     * @param mode
+     * @param topic the full topic
+     * @param qos
+     */
+    public ClientMetrics(int id, Mode mode, String topic, int qos) {
+        this.id = id;
+        this.mode = mode;
+        this.topic = topic;
+        this.qos = qos;
+    }
+
+    /**
+     * Counts a published message.
+     *
+     * @param bytes     the size of its payload
+     * @param wireBytes the size of its PUBLISH packet, headers included
+     */
+    public void sent(int bytes, int wireBytes) {
+        sendMsg.increment();
+        sendBytes.add(bytes);
+        sendWireBytes.add(wireBytes);
+    }
+
+    /**
+     * Counts a received message.
+     *
+     * @param bytes the size of its payload
+     */
+    public void received(int bytes) {
+        rcvMsg.increment();
+        rcvBytes.add(bytes);
+    }
+
+    /**
+     * @param delta the messages just published, if positive, or acknowledged, if negative
+     */
+    public void addInflight(int delta) {
+        inflight.add(delta);
+    }
+
+    /**
+     * Records a latency: the RTT for publishers, the end-to-end latency for subscribers.
+     *
+     * @param nanos the latency in nanoseconds
+     */
+    public void recordLatency(long nanos) {
+        HistogramUtils.recordNanos(recorder, nanos);
+    }
+
+    /**
+     * Checks the sequence of a received message against the ones from the same publisher.
+     *
+     * @param publisherId
+     * @param sequence
+     */
+    public synchronized void track(int publisherId, long sequence) {
+        if (publisherId < 0) return;
+        trackers.computeIfAbsent(publisherId, id -> new SequenceTracker()).track(sequence);
+    }
+
+    /**
+     * @param elapsedTime the length of the measured activity in milliseconds
+     */
+    public void setElapsedTime(long elapsedTime) {
+        this.elapsedTime = elapsedTime;
+    }
+
+    /**
+     * @param unsentMsg the messages due in the measurement window and never published, as the publisher fell behind
+     *                  its schedule
+     */
+    public void setUnsentMsg(long unsentMsg) {
+        this.unsentMsg = unsentMsg;
+    }
+
+    /**
+     * Moves the latencies recorded since the last call into the total ones. Recording is never blocked by this call.
+     *
+     * @return the latencies recorded since the last call, valid until the next one
+     */
+    public Histogram sample() {
+        synchronized (recorder) {
+            drain();
+            if (sampled == null) {
+                // nothing was sampled yet, so all the latencies are new
+                sampled = HistogramUtils.createCompact();
+                spare = histogram.copy();
+                return spare;
+            }
+            Histogram current = sampled;
+            sampled = spare;
+            sampled.reset();
+            spare = current;
+            return current;
+        }
+    }
+
+    /**
+     * Drops the histograms kept for {@link #sample()}, which starts over at its next call.
+     */
+    public void stopSampling() {
+        synchronized (recorder) {
+            sampled = null;
+            spare = null;
+        }
+    }
+
+    /**
+     * Adds all the latencies recorded so far to a histogram, leaving {@link #sample()} untouched.
+     *
+     * @param target the histogram to add them to
+     */
+    public void addLatencyTo(Histogram target) {
+        synchronized (recorder) {
+            drain();
+            target.add(histogram);
+        }
+    }
+
+    private void drain() {
+        interval = recorder.getIntervalHistogram(interval);
+        histogram.add(interval);
+        if (sampled != null) sampled.add(interval);
+    }
+
+    /**
+     * @return the results so far, which later updates leave untouched
+     */
+    public Data snapshot() {
+        Histogram latency;
+        synchronized (recorder) {
+            drain();
+            latency = histogram.copy();
+        }
+        long dupMsg = 0;
+        long reorderedMsg = 0;
+        long lateMsg = 0;
+        Map<Integer, Long> rcvMsgByPublisher = new HashMap<>();
+        synchronized (this) {
+            for (Map.Entry<Integer, SequenceTracker> entry : trackers.entrySet()) {
+                rcvMsgByPublisher.put(entry.getKey(), entry.getValue().getUnique());
+                dupMsg += entry.getValue().getDuplicated();
+                reorderedMsg += entry.getValue().getReordered();
+                lateMsg += entry.getValue().getLate();
+            }
+        }
+        return new Data(mode, topic, qos, mode == Mode.PUB ? id : -1, sendMsg.sum(), rcvMsg.sum(), sendBytes.sum(),
+                rcvBytes.sum(), sendWireBytes.sum(), elapsedTime, latency, dupMsg, reorderedMsg, lateMsg,
+                rcvMsgByPublisher,
+                unsentMsg);
+    }
+
+    /**
+     * Starts the metrics over for a new measurement window. It must be called when no message is in flight: updates
+     * racing with it may be lost or kept.
+     */
+    public void reset() {
+        sendMsg.reset();
+        sendBytes.reset();
+        sendWireBytes.reset();
+        rcvMsg.reset();
+        rcvBytes.reset();
+        inflight.reset();
+        synchronized (recorder) {
+            recorder.reset();
+            histogram.reset();
+        }
+        stopSampling();
+        synchronized (this) {
+            trackers.clear();
+        }
+        elapsedTime = 0;
+        unsentMsg = 0;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    public String getTopic() {
+        return topic;
+    }
+
+    public int getQos() {
+        return qos;
+    }
+
+    public long getSendMsg() {
+        return sendMsg.sum();
+    }
+
+    public long getRcvMsg() {
+        return rcvMsg.sum();
+    }
+
+    public long getSendBytes() {
+        return sendBytes.sum();
+    }
+
+    public long getRcvBytes() {
+        return rcvBytes.sum();
+    }
+
+    /**
+     * @return the messages published and not acknowledged yet
+     */
+    public long getInflight() {
+        return inflight.sum();
+    }
+
+}
@@ -0,0 +1,51 @@
+package it.uniupo.stats;
+
+import it.uniupo.Mode;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The metrics of the executors of a process, by executor id.
+ * <p>
+ * Executors register when they are created, a new run replacing the metrics of the previous one, so the registry
+ * always holds the run going on and can be read by any thread while it is updated.
+ *
+ * @author Lorenzo Ferron
+ * @version 2026.10.18
+ */
+public class MetricsRegistry {
+
+    private final Map<Integer, ClientMetrics> metrics = new ConcurrentHashMap<>();
+
+    /**
+     * @param id    the id of the executor
+     * @param mode
+     * @param topic the full topic
+     * @param qos
+     * @return new metrics for the executor
+     */
+    public ClientMetrics register(int id, Mode mode, String topic, int qos) {
+        ClientMetrics clientMetrics = new ClientMetrics(id, mode, topic, qos);
+        metrics.put(id, clientMetrics);
+        return clientMetrics;
+    }
+
+    /**
+     * @param id the id of the executor
+     * @return its metrics, {@code null} if it never registered
+     */
+    public ClientMetrics get(int id) {
+        return metrics.get(id);
+    }
+
+    /**
+     * @return a live view of the metrics of every executor
+     */
+    public Collection<ClientMetrics> getAll() {
+        return Collections.unmodifiableCollection(metrics.values());
+    }
+
+}
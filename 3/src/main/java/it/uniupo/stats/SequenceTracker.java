@@ -0,0 +1,91 @@
+package it.uniupo.stats;
+
+/**
+ * Tracks the sequence numbers received from one publisher to tell unique, duplicated and out-of-order messages apart.
+ * <p>
+ * Only the last {@link #WINDOW} sequence numbers below the highest one are remembered, in a ring bitmap, so memory is
+ * bounded whatever the length of the run. A message older than the window can't be checked, it may as well be a late
+ * duplicate: it is counted as late only, and never as unique, so that it cannot hide a loss.
+ *
+ * @author Lorenzo Ferron
+ * @version 2026.10.18
+ */
+public class SequenceTracker {
+
+    public static final int WINDOW = 1024;
+
+    private final long[] bits = new long[WINDOW / Long.SIZE];
+    private long highest = -1;
+    private long unique;
+    private long duplicated;
+    private long reordered;
+    private long late;
+
+    /**
+     * @param sequence the sequence number of a received message
+     */
+    public void track(long sequence) {
+        if (sequence < 0) return;
+        if (sequence > highest) {
+            // the sequences between the old and the new highest enter the window as missing
+            for (long s = Math.max(highest + 1, sequence - WINDOW + 1); s < sequence; s++)
+                clear(s);
+            set(sequence);
+            highest = sequence;
+            unique++;
+        } else if (highest - sequence >= WINDOW)
+            late++;
+        else if (isSet(sequence))
+            duplicated++;
+        else {
+            set(sequence);
+            unique++;
+            reordered++;
+        }
+    }
+
+    private boolean isSet(long sequence) {
+        int index = (int) (sequence % WINDOW);
+        return (bits[index >>> 6] & 1L << index) != 0;
+    }
+
+    private void set(long sequence) {
+        int index = (int) (sequence % WINDOW);
+        bits[index >>> 6] |= 1L << index;
+    }
+
+    private void clear(long sequence) {
+        int index = (int) (sequence % WINDOW);
+        bits[index >>> 6] &= ~(1L << index);
+    }
+
+    /**
+     * @return the number of distinct messages received
+     */
+    public long getUnique() {
+        return unique;
+    }
+
+    public long getDuplicated() {
+        return duplicated;
+    }
+
+    /**
+     * @return the number of messages received after one with a higher sequence number
+     */
+    public long getReordered() {
+        return reordered;
+    }
+
+    /**
+     * @return the number of messages received too late to be checked against the window, unique or not
+     */
+    public long getLate() {
+        return late;
+    }
+
+    public long getHighest() {
+        return highest;
+    }
+
+}
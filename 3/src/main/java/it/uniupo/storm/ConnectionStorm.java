@@ -0,0 +1,396 @@
+package it.uniupo.storm;
+
+import it.uniupo.Fleet;
+import it.uniupo.descriptors.Storm;
+import it.uniupo.engine.Engine;
+import it.uniupo.util.HistogramUtils;
+import org.HdrHistogram.Histogram;
+import org.eclipse.paho.client.mqttv3.*;
+import org.eclipse.paho.client.mqttv3.internal.SystemHighResolutionTimer;
+import org.eclipse.paho.client.mqttv3.persist.MemoryPersistence;
+
+import javax.net.SocketFactory;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Connects many clients to the broker at a target rate, as they do when it comes back after a restart, and times how
+ * it copes with them.
+ * <p>
+ * Every client is created before the storm, then all connection attempts are scheduled from the same instant, the
+ * i-th at {@code start + i / rate}, so the rate does not depend on how fast the broker answers. Once every attempt has
+ * an outcome the connections are held for a while, to see how many of them the broker sustains.
+ *
+ * @author Lorenzo Ferron
+ * @version 2026.10.18
+ */
+public class ConnectionStorm {
+
+    private final Storm config;
+    private final String hostURI;
+    private final Engine engine;
+
+    /**
+     * @param config  the descriptor of the storm
+     * @param hostURI the URI of the broker
+     * @param engine  the engine whose scheduler paces the attempts and runs the keep-alive pings
+     */
+    public ConnectionStorm(Storm config, String hostURI, Engine engine) {
+        this.config = config;
+        this.hostURI = hostURI;
+        this.engine = engine;
+    }
+
+    /**
+     * Runs the storm, holds the connections and closes them.
+     *
+     * @param hold how long the connections are held once every attempt has an outcome
+     * @param unit the unit of the hold
+     * @return the outcome of the storm
+     * @throws InterruptedException
+     * @throws MqttException        if a client cannot be created
+     */
+    public Outcome run(long hold, TimeUnit unit) throws InterruptedException, MqttException {
+        Outcome outcome = new Outcome();
+        List<Client> clients = new ArrayList<>(config.getClients());
+        for (int i = 0; i < config.getClients(); i++)
+            clients.add(new Client(outcome));
+        CountDownLatch done = new CountDownLatch(clients.size());
+        long period = config.getRate() > 0 ? (long) (TimeUnit.SECONDS.toNanos(1) / config.getRate()) : 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < clients.size(); i++) {
+            Client client = clients.get(i);
+            engine.getScheduler().schedule(() -> client.connect(done), start + i * period - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+        done.await();
+        // from the first attempt to the last CONNACK, nothing if no client connected
+        outcome.elapsedTime = outcome.connected.get() == 0 ? 0
+                : Math.max(0, TimeUnit.NANOSECONDS.toMillis(outcome.lastConnack.get() - start));
+        unit.sleep(hold);
+        outcome.sustainedConnections = outcome.connections.get();
+        CountDownLatch closed = new CountDownLatch(clients.size());
+        clients.forEach(client -> client.disconnect(closed));
+        closed.await();
+        clients.forEach(Client::close);
+        return outcome;
+    }
+
+    /**
+     * A client of the storm, connecting once.
+     */
+    private class Client implements MqttCallback {
+
+        private final Outcome outcome;
+        private final MqttAsyncClient client;
+        private final MqttConnectOptions options = new MqttConnectOptions();
+        // when the CONNECT reached the socket: Paho starts its threads in between, which takes hundreds of milliseconds
+        private volatile long connectSent;
+        private volatile boolean written;
+
+        Client(Outcome outcome) throws MqttException {
+            this.outcome = outcome;
+            // SSL needs its own factory, there the latency is taken from the call to connect
+            if (hostURI.startsWith("tcp://")) this.options.setSocketFactory(new TimedSocketFactory());
+            this.client = new MqttAsyncClient(hostURI, "mqtt-client-" + UUID.randomUUID().toString(),
+                    new MemoryPersistence(), engine.newPingSender(), null, new SystemHighResolutionTimer());
+            this.client.setCallback(this);
+        }
+
+        void connect(CountDownLatch done) {
+            outcome.attempts.incrementAndGet();
+            connectSent = System.nanoTime();
+            try {
+                client.connect(options, null, new IMqttActionListener() {
+                    @Override
+                    public void onSuccess(IMqttToken asyncActionToken) {
+                        long now = System.nanoTime();
+                        HistogramUtils.recordNanos(outcome.connack, now - connectSent);
+                        outcome.lastConnack.accumulateAndGet(now, Math::max);
+                        outcome.connected.incrementAndGet();
+                        outcome.peakConnections.accumulateAndGet(outcome.connections.incrementAndGet(), Math::max);
+                        if (config.getTopic() == null) done.countDown();
+                        else subscribe(done);
+                    }
+
+                    @Override
+                    public void onFailure(IMqttToken asyncActionToken, Throwable exception) {
+                        outcome.connectFailures.incrementAndGet();
+                        done.countDown();
+                    }
+                });
+            } catch (MqttException e) {
+                outcome.connectFailures.incrementAndGet();
+                done.countDown();
+            }
+        }
+
+        private void subscribe(CountDownLatch done) {
+            long sent = System.nanoTime();
+            try {
+                client.subscribe(Fleet.PARENT_LEVEL + config.getTopic(), config.getQos(), null, new IMqttActionListener() {
+                    @Override
+                    public void onSuccess(IMqttToken asyncActionToken) {
+                        HistogramUtils.recordNanos(outcome.suback, System.nanoTime() - sent);
+                        outcome.subscribed.incrementAndGet();
+                        done.countDown();
+                    }
+
+                    @Override
+                    public void onFailure(IMqttToken asyncActionToken, Throwable exception) {
+                        outcome.subscribeFailures.incrementAndGet();
+                        done.countDown();
+                    }
+                });
+            } catch (MqttException e) {
+                outcome.subscribeFailures.incrementAndGet();
+                done.countDown();
+            }
+        }
+
+        void disconnect(CountDownLatch closed) {
+            try {
+                if (client.isConnected())
+                    client.disconnect(0, null, new IMqttActionListener() {
+                        @Override
+                        public void onSuccess(IMqttToken asyncActionToken) {
+                            closed.countDown();
+                        }
+
+                        @Override
+                        public void onFailure(IMqttToken asyncActionToken, Throwable exception) {
+                            closed.countDown();
+                        }
+                    });
+                else
+                    closed.countDown();
+            } catch (MqttException e) {
+                closed.countDown();
+            }
+        }
+
+        void close() {
+            try {
+                client.close();
+            } catch (MqttException e) {
+                e.printStackTrace();
+            }
+        }
+
+        private void mark() {
+            if (written) return;
+            connectSent = System.nanoTime();
+            written = true;
+        }
+
+        /**
+         * Creates plain sockets which note when the first packet, the CONNECT, is written.
+         */
+        private class TimedSocketFactory extends SocketFactory {
+
+            @Override
+            public Socket createSocket() {
+                return new Socket() {
+                    private OutputStream stream;
+
+                    @Override
+                    public synchronized OutputStream getOutputStream() throws IOException {
+                        if (stream == null)
+                            stream = new FilterOutputStream(super.getOutputStream()) {
+                                @Override
+                                public void write(int b) throws IOException {
+                                    mark();
+                                    out.write(b);
+                                }
+
+                                @Override
+                                public void write(byte[] b, int off, int len) throws IOException {
+                                    mark();
+                                    out.write(b, off, len);
+                                }
+                            };
+                        return stream;
+                    }
+                };
+            }
+
+            // the connected sockets are made as the default factory does, but timed
+
+            @Override
+            public Socket createSocket(String host, int port) throws IOException {
+                return createSocket(new InetSocketAddress(host, port), null);
+            }
+
+            @Override
+            public Socket createSocket(String host, int port, InetAddress localHost, int localPort) throws IOException {
+                return createSocket(new InetSocketAddress(host, port), new InetSocketAddress(localHost, localPort));
+            }
+
+            @Override
+            public Socket createSocket(InetAddress host, int port) throws IOException {
+                return createSocket(new InetSocketAddress(host, port), null);
+            }
+
+            @Override
+            public Socket createSocket(InetAddress address, int port, InetAddress localAddress, int localPort) throws IOException {
+                return createSocket(new InetSocketAddress(address, port), new InetSocketAddress(localAddress, localPort));
+            }
+
+            private Socket createSocket(InetSocketAddress remote, InetSocketAddress local) throws IOException {
+                Socket socket = createSocket();
+                try {
+                    if (local != null) socket.bind(local);
+                    socket.connect(remote);
+                    return socket;
+                } catch (IOException e) {
+                    socket.close();
+                    throw e;
+                }
+            }
+        }
+
+        @Override
+        public void connectionLost(Throwable cause) {
+            outcome.connections.decrementAndGet();
+            outcome.dropped.incrementAndGet();
+        }
+
+        @Override
+        public void messageArrived(String topic, MqttMessage message) {
+            // NO-OP
+        }
+
+        @Override
+        public void deliveryComplete(IMqttDeliveryToken token) {
+            // NO-OP
+        }
+    }
+
+    /**
+     * The counts and latencies of one storm, or of several merged.
+     */
+    public static class Outcome {
+
+        private final Histogram connack = HistogramUtils.createSynchronized();
+        private final Histogram suback = HistogramUtils.createSynchronized();
+        private final AtomicLong attempts = new AtomicLong();
+        private final AtomicLong connected = new AtomicLong();
+        private final AtomicLong connectFailures = new AtomicLong();
+        private final AtomicLong subscribed = new AtomicLong();
+        private final AtomicLong subscribeFailures = new AtomicLong();
+        private final AtomicLong dropped = new AtomicLong();
+        // connections open right now
+        private final AtomicInteger connections = new AtomicInteger();
+        private final AtomicInteger peakConnections = new AtomicInteger();
+        // 0 until a client connects
+        private final AtomicLong lastConnack = new AtomicLong();
+        private int sustainedConnections;
+        private long elapsedTime;
+        private int runs = 1;
+
+        /**
+         * Folds another outcome, e.g. of another run, into this one: counts are summed, the peak is the highest, the
+         * sustained connections the fewest and the connection rate the average.
+         *
+         * @param other the outcome to merge
+         * @return this outcome
+         */
+        public Outcome merge(Outcome other) {
+            connack.add(other.connack);
+            suback.add(other.suback);
+            attempts.addAndGet(other.attempts.get());
+            connected.addAndGet(other.connected.get());
+            connectFailures.addAndGet(other.connectFailures.get());
+            subscribed.addAndGet(other.subscribed.get());
+            subscribeFailures.addAndGet(other.subscribeFailures.get());
+            dropped.addAndGet(other.dropped.get());
+            peakConnections.accumulateAndGet(other.peakConnections.get(), Math::max);
+            sustainedConnections = runs == 0 ? other.sustainedConnections : Math.min(sustainedConnections, other.sustainedConnections);
+            elapsedTime += other.elapsedTime;
+            runs += other.runs;
+            return this;
+        }
+
+        /**
+         * @return an empty outcome to merge the ones of the runs into
+         */
+        public static Outcome empty() {
+            Outcome outcome = new Outcome();
+            outcome.runs = 0;
+            return outcome;
+        }
+
+        /**
+         * @return the CONNECT to CONNACK latency histogram in microseconds
+         */
+        public Histogram getConnack() {
+            return connack;
+        }
+
+        /**
+         * @return the SUBSCRIBE to SUBACK latency histogram in microseconds
+         */
+        public Histogram getSuback() {
+            return suback;
+        }
+
+        public long getAttempts() {
+            return attempts.get();
+        }
+
+        public long getConnected() {
+            return connected.get();
+        }
+
+        public long getConnectFailures() {
+            return connectFailures.get();
+        }
+
+        public long getSubscribed() {
+            return subscribed.get();
+        }
+
+        public long getSubscribeFailures() {
+            return subscribeFailures.get();
+        }
+
+        /**
+         * @return the connections lost after being established
+         */
+        public long getDropped() {
+            return dropped.get();
+        }
+
+        /**
+         * @return the most connections open at the same time
+         */
+        public int getPeakConnections() {
+            return peakConnections.get();
+        }
+
+        /**
+         * @return the connections still open at the end of the hold
+         */
+        public int getSustainedConnections() {
+            return sustainedConnections;
+        }
+
+        /**
+         * @return the established connections per second, from the first attempt to the last CONNACK
+         */
+        public double getConnectionRate() {
+            return elapsedTime == 0 ? 0 : connected.get() * 1000.0 / elapsedTime;
+        }
+    }
+
+}
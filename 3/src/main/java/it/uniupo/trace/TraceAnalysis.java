@@ -0,0 +1,349 @@
+package it.uniupo.trace;
+
+import it.uniupo.util.HistogramUtils;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The offline analysis of a trace, in a single pass over its records merged in time order:
+ * <ul>
+ * <li>rates and latency percentiles second by second, to see when the latency moved;</li>
+ * <li>stalls, that is gaps with no acknowledgement nor delivery while messages were waiting for one;</li>
+ * <li>outliers, that is executors whose p99 is well above the one of most executors of the same role.</li>
+ * </ul>
+ *
+ * @author Lorenzo Ferron
+ * @version 2026.10.18
+ */
+public class TraceAnalysis {
+
+    /**
+     * How many times the median p99 of its role the p99 of an outlier is at least
+     */
+    public static final double OUTLIER_FACTOR = 2;
+    public static final int MAX_OUTLIERS = 10;
+
+    private final int files;
+    private final long[] events = new long[Tracer.RECEIVE + 1];
+    private final List<Second> seconds = new ArrayList<>();
+    private final List<Stall> stalls = new ArrayList<>();
+    private final List<Outlier> outliers = new ArrayList<>();
+    private long runs;
+    private double duration;
+
+    /**
+     * Reads the whole trace.
+     *
+     * @param reader the trace
+     * @param stall  the shortest gap reported as a stall
+     * @param unit   the unit of the gap
+     * @throws IOException
+     */
+    public TraceAnalysis(TraceReader reader, long stall, TimeUnit unit) throws IOException {
+        this.files = reader.getFiles();
+        long minGap = unit.toNanos(stall);
+        Map<Integer, Histogram> rtt = new HashMap<>();
+        Map<Integer, Histogram> latency = new HashMap<>();
+        Second second = null;
+        long first = 0;
+        long last = 0;
+        long lastCompletion = 0;
+        long outstanding = 0;
+        long run = -1;
+        while (reader.next()) {
+            long time = reader.getNanoTime();
+            int type = reader.getType();
+            if (type < 0 || type >= events.length) continue;
+            if (second == null) first = lastCompletion = time;
+            last = time;
+            events[type]++;
+            long index = (time - first) / TimeUnit.SECONDS.toNanos(1);
+            if (second == null || second.index != index) {
+                if (second != null) second.settle();
+                second = new Second(index);
+                seconds.add(second);
+            }
+            second.run = run;
+            switch (type) {
+                case Tracer.RUN:
+                    run = reader.getSequence();
+                    second.run = run;
+                    outstanding = 0;
+                    lastCompletion = time;
+                    break;
+                case Tracer.PUBLISH:
+                    second.publishes++;
+                    second.maxLag = Math.max(second.maxLag, reader.getValue());
+                    outstanding++;
+                    break;
+                case Tracer.ACK:
+                case Tracer.RECEIVE:
+                    if (outstanding > 0 && time - lastCompletion >= minGap)
+                        stalls.add(new Stall((lastCompletion - first) / 1e9, (time - lastCompletion) / 1e6, outstanding));
+                    lastCompletion = time;
+                    Histogram total;
+                    if (type == Tracer.ACK) {
+                        second.acks++;
+                        outstanding = Math.max(0, outstanding - 1);
+                        second.rtt.recordValue(Math.min(reader.getValue(), HistogramUtils.HIGHEST_TRACKABLE_VALUE));
+                        total = rtt.computeIfAbsent(reader.getExecutor(), executor -> HistogramUtils.create());
+                    } else {
+                        second.receives++;
+                        second.latency.recordValue(Math.min(reader.getValue(), HistogramUtils.HIGHEST_TRACKABLE_VALUE));
+                        total = latency.computeIfAbsent(reader.getExecutor(), executor -> HistogramUtils.create());
+                    }
+                    total.recordValue(Math.min(reader.getValue(), HistogramUtils.HIGHEST_TRACKABLE_VALUE));
+                    break;
+            }
+        }
+        if (second != null) second.settle();
+        this.runs = events[Tracer.RUN];
+        this.duration = (last - first) / 1e9;
+        findOutliers("publisher", rtt);
+        findOutliers("subscriber", latency);
+        outliers.sort(Comparator.comparingDouble(Outlier::getP99).reversed());
+        if (outliers.size() > MAX_OUTLIERS) outliers.subList(MAX_OUTLIERS, outliers.size()).clear();
+    }
+
+    private void findOutliers(String role, Map<Integer, Histogram> histograms) {
+        if (histograms.isEmpty()) return;
+        double[] p99s = histograms.values().stream().mapToDouble(h -> HistogramUtils.percentileMillis(h, 99)).sorted().toArray();
+        double median = p99s[p99s.length / 2];
+        histograms.forEach((executor, histogram) -> {
+            double p99 = HistogramUtils.percentileMillis(histogram, 99);
+            if (p99 > OUTLIER_FACTOR * median)
+                outliers.add(new Outlier(executor, role, histogram, median));
+        });
+    }
+
+    public int getFiles() {
+        return files;
+    }
+
+    /**
+     * @param type the type of event, as in {@link Tracer}
+     * @return how many events of that type the trace holds
+     */
+    public long getEvents(int type) {
+        return events[type];
+    }
+
+    public long getRuns() {
+        return runs;
+    }
+
+    /**
+     * @return the time between the first and the last event, in seconds
+     */
+    public double getDuration() {
+        return duration;
+    }
+
+    /**
+     * @return the seconds with at least an event, in order
+     */
+    public List<Second> getSeconds() {
+        return Collections.unmodifiableList(seconds);
+    }
+
+    /**
+     * @return the stalls, in order
+     */
+    public List<Stall> getStalls() {
+        return Collections.unmodifiableList(stalls);
+    }
+
+    /**
+     * @return the worst outliers first, at most {@link #MAX_OUTLIERS}
+     */
+    public List<Outlier> getOutliers() {
+        return Collections.unmodifiableList(outliers);
+    }
+
+    /**
+     * The events of a second of the trace.
+     */
+    public static class Second {
+
+        private final long index;
+        private Histogram rtt = HistogramUtils.create();
+        private Histogram latency = HistogramUtils.create();
+        private long run;
+        private long publishes;
+        private long acks;
+        private long receives;
+        private int maxLag;
+        private double[] rttMillis;
+        private double[] latencyMillis;
+
+        Second(long index) {
+            this.index = index;
+        }
+
+        /**
+         * Keeps the percentiles only, so that a long trace does not hold a histogram per second.
+         */
+        void settle() {
+            rttMillis = summarize(rtt);
+            latencyMillis = summarize(latency);
+            rtt = null;
+            latency = null;
+        }
+
+        private static double[] summarize(Histogram histogram) {
+            return new double[]{histogram.getTotalCount(), HistogramUtils.percentileMillis(histogram, 50),
+                    HistogramUtils.percentileMillis(histogram, 99), HistogramUtils.maxMillis(histogram)};
+        }
+
+        /**
+         * @return the seconds from the first event
+         */
+        public long getIndex() {
+            return index;
+        }
+
+        /**
+         * @return the index of the run going on, -1 before the first one
+         */
+        public long getRun() {
+            return run;
+        }
+
+        public long getPublishes() {
+            return publishes;
+        }
+
+        public long getAcks() {
+            return acks;
+        }
+
+        public long getReceives() {
+            return receives;
+        }
+
+        /**
+         * @return the longest delay of a publish from its intended send time, in milliseconds
+         */
+        public double getMaxLag() {
+            return maxLag / 1e3;
+        }
+
+        /**
+         * @return count, p50, p99 and max of the RTT, in milliseconds
+         */
+        public double[] getRtt() {
+            return rttMillis;
+        }
+
+        /**
+         * @return count, p50, p99 and max of the end-to-end latency, in milliseconds
+         */
+        public double[] getLatency() {
+            return latencyMillis;
+        }
+    }
+
+    /**
+     * A gap with no acknowledgement nor delivery while messages were waiting for one.
+     */
+    public static class Stall {
+
+        private final double start;
+        private final double length;
+        private final long outstanding;
+
+        Stall(double start, double length, long outstanding) {
+            this.start = start;
+            this.length = length;
+            this.outstanding = outstanding;
+        }
+
+        /**
+         * @return the seconds from the first event
+         */
+        public double getStart() {
+            return start;
+        }
+
+        /**
+         * @return the length in milliseconds
+         */
+        public double getLength() {
+            return length;
+        }
+
+        /**
+         * @return the messages published and not acknowledged at the end of the gap
+         */
+        public long getOutstanding() {
+            return outstanding;
+        }
+    }
+
+    /**
+     * An executor whose p99 is well above the median p99 of its role.
+     */
+    public static class Outlier {
+
+        private final int executor;
+        private final String role;
+        private final long count;
+        private final double p50;
+        private final double p99;
+        private final double max;
+        private final double medianP99;
+
+        Outlier(int executor, String role, Histogram histogram, double medianP99) {
+            this.executor = executor;
+            this.role = role;
+            this.count = histogram.getTotalCount();
+            this.p50 = HistogramUtils.percentileMillis(histogram, 50);
+            this.p99 = HistogramUtils.percentileMillis(histogram, 99);
+            this.max = HistogramUtils.maxMillis(histogram);
+            this.medianP99 = medianP99;
+        }
+
+        public int getExecutor() {
+            return executor;
+        }
+
+        /**
+         * @return publisher, whose latency is the RTT, or subscriber, whose latency is the end-to-end one
+         */
+        public String getRole() {
+            return role;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public double getP50() {
+            return p50;
+        }
+
+        public double getP99() {
+            return p99;
+        }
+
+        public double getMax() {
+            return max;
+        }
+
+        /**
+         * @return the median p99 of the executors of the same role, in milliseconds
+         */
+        public double getMedianP99() {
+            return medianP99;
+        }
+    }
+
+}
@@ -0,0 +1,159 @@
+package it.uniupo.trace;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Comparator;
+import java.util.PriorityQueue;
+
+/**
+ * Reads the files of a trace merged in time order.
+ * <p>
+ * Every file is in time order, so they are merged on the fly by always reading from the one whose next record is the
+ * oldest: memory does not depend on the length of the trace and no record is allocated.
+ *
+ * @author Lorenzo Ferron
+ * @version 2026.10.18
+ */
+public class TraceReader implements AutoCloseable {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final PriorityQueue<Cursor> queue = new PriorityQueue<>(Comparator.comparingLong(cursor -> cursor.nanoTime));
+    private final int files;
+    private Cursor current;
+
+    /**
+     * @param directory the directory of the trace files
+     * @throws IOException if it holds no trace or a file cannot be read
+     */
+    public TraceReader(File directory) throws IOException {
+        if (!directory.isDirectory())
+            throw new IOException(directory + " holds no trace");
+        int count = 0;
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory.toPath(), Tracer.PREFIX + "*" + Tracer.SUFFIX)) {
+            for (Path file : stream) {
+                Cursor cursor = new Cursor(file);
+                count++;
+                if (cursor.advance()) queue.add(cursor);
+                else cursor.close();
+            }
+        } catch (IOException e) {
+            close();
+            throw e;
+        }
+        if (count == 0)
+            throw new IOException(directory + " holds no trace");
+        this.files = count;
+    }
+
+    /**
+     * @return the number of trace files
+     */
+    public int getFiles() {
+        return files;
+    }
+
+    /**
+     * Moves to the next record in time order.
+     *
+     * @return {@code false} at the end of the trace
+     * @throws IOException
+     */
+    public boolean next() throws IOException {
+        if (current != null) {
+            if (current.advance()) queue.add(current);
+            else current.close();
+        }
+        current = queue.poll();
+        return current != null;
+    }
+
+    public long getNanoTime() {
+        return current.nanoTime;
+    }
+
+    public long getSequence() {
+        return current.sequence;
+    }
+
+    public int getExecutor() {
+        return current.executor;
+    }
+
+    public int getPeer() {
+        return current.peer;
+    }
+
+    public int getType() {
+        return current.type;
+    }
+
+    /**
+     * @return the duration carried by the record, in microseconds
+     */
+    public int getValue() {
+        return current.value;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (current != null) current.close();
+        for (Cursor cursor : queue)
+            cursor.close();
+        queue.clear();
+    }
+
+    /**
+     * The next record of a file.
+     */
+    private static class Cursor implements AutoCloseable {
+
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        private long nanoTime;
+        private long sequence;
+        private int executor;
+        private int peer;
+        private int type;
+        private int value;
+
+        Cursor(Path file) throws IOException {
+            this.channel = FileChannel.open(file, StandardOpenOption.READ);
+            buffer.flip();
+        }
+
+        /**
+         * @return {@code false} at the end of the file, or of the records written to it
+         */
+        boolean advance() throws IOException {
+            if (buffer.remaining() < Tracer.RECORD_SIZE) {
+                buffer.compact();
+                while (buffer.position() < Tracer.RECORD_SIZE)
+                    if (channel.read(buffer) < 0) break;
+                buffer.flip();
+                if (buffer.remaining() < Tracer.RECORD_SIZE) return false;
+            }
+            nanoTime = buffer.getLong();
+            sequence = buffer.getLong();
+            executor = buffer.getInt();
+            peer = buffer.getInt();
+            type = buffer.getInt();
+            value = buffer.getInt();
+            // the zeroed tail of the last chunk
+            return type != 0;
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+
+}
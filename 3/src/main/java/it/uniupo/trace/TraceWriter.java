@@ -0,0 +1,68 @@
+package it.uniupo.trace;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Appends trace records to a file mapped in memory, one {@link #CHUNK} at a time, for the use of a single thread.
+ * <p>
+ * A record is written straight into the mapping, so appending neither allocates nor calls the kernel, apart from
+ * mapping the next chunk. The file grows by whole chunks and its tail is left zeroed, which readers take as its end.
+ *
+ * @author Lorenzo Ferron
+ * @version 2026.10.18
+ */
+class TraceWriter implements AutoCloseable {
+
+    /**
+     * Bytes mapped at a time, a multiple of the record size
+     */
+    static final long CHUNK = 1 << 20;
+
+    private final FileChannel channel;
+    private MappedByteBuffer buffer;
+    private long position;
+
+    /**
+     * @param file a file that does not exist yet
+     * @throws IOException if it cannot be created or mapped
+     */
+    TraceWriter(Path file) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        this.buffer = map();
+    }
+
+    /**
+     * @throws UncheckedIOException if the next chunk cannot be mapped
+     */
+    void append(long nanoTime, long sequence, int executor, int peer, int type, int value) {
+        if (!buffer.hasRemaining()) {
+            position += CHUNK;
+            try {
+                buffer = map();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        buffer.putLong(nanoTime).putLong(sequence).putInt(executor).putInt(peer).putInt(type).putInt(value);
+    }
+
+    private MappedByteBuffer map() throws IOException {
+        MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_WRITE, position, CHUNK);
+        mapped.order(ByteOrder.LITTLE_ENDIAN);
+        return mapped;
+    }
+
+    @Override
+    public void close() throws IOException {
+        buffer.force();
+        channel.close();
+    }
+
+}
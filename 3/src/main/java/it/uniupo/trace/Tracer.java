@@ -0,0 +1,157 @@
+package it.uniupo.trace;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Records every publish, acknowledgement and receive of the executors as a fixed-width binary record, for an offline
+ * analysis of what histograms hide, such as one-off stalls.
+ * <p>
+ * Each thread appends to its own memory-mapped file, so recording takes no lock and allocates nothing. A record is
+ * {@link #RECORD_SIZE} little-endian bytes:
+ * <ol>
+ * <li>the {@link System#nanoTime()} of the event, taken by the tracer so that every file is in time order;</li>
+ * <li>the sequence number of the message, or the index of the run for {@link #RUN};</li>
+ * <li>the id of the executor;</li>
+ * <li>the id of the publisher of the message;</li>
+ * <li>the type of the event;</li>
+ * <li>a duration in microseconds: how late a message was published after its intended send time, its RTT or its
+ * end-to-end latency, both measured from the intended send time as the histograms are.</li>
+ * </ol>
+ *
+ * @author Lorenzo Ferron
+ * @version 2026.10.18
+ */
+public class Tracer implements AutoCloseable {
+
+    public static final int RECORD_SIZE = 32;
+    public static final String PREFIX = "trace-";
+    public static final String SUFFIX = ".bin";
+
+    /**
+     * A run begins
+     */
+    public static final int RUN = 1;
+    /**
+     * A publisher hands a message to its client
+     */
+    public static final int PUBLISH = 2;
+    /**
+     * The broker acknowledges a message to its publisher
+     */
+    public static final int ACK = 3;
+    /**
+     * A subscriber receives a message
+     */
+    public static final int RECEIVE = 4;
+
+    private final Path directory;
+    private final AtomicInteger files = new AtomicInteger();
+    private final AtomicLong runs = new AtomicLong();
+    // guarded by itself
+    private final List<TraceWriter> writers = new ArrayList<>();
+    private final ThreadLocal<TraceWriter> writer = ThreadLocal.withInitial(this::newWriter);
+    private volatile boolean closed;
+
+    /**
+     * @param directory the directory of the trace files, created if missing
+     * @throws IOException if it cannot be created or it already holds a trace
+     */
+    public Tracer(File directory) throws IOException {
+        this.directory = directory.toPath();
+        Files.createDirectories(this.directory);
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(this.directory, PREFIX + "*" + SUFFIX)) {
+            if (stream.iterator().hasNext())
+                throw new IOException(directory + " already holds a trace");
+        }
+    }
+
+    /**
+     * @return the directory of the trace files
+     */
+    public File getDirectory() {
+        return directory.toFile();
+    }
+
+    /**
+     * Marks the beginning of a run.
+     */
+    public void run() {
+        append(-1, runs.getAndIncrement(), -1, RUN, 0);
+    }
+
+    /**
+     * @param executor the publisher
+     * @param sequence the sequence number of the message
+     * @param lag      how late it was published after its intended send time, in nanoseconds
+     */
+    public void publish(int executor, long sequence, long lag) {
+        append(executor, sequence, executor, PUBLISH, lag);
+    }
+
+    /**
+     * @param executor the publisher
+     * @param sequence the sequence number of the message
+     * @param rtt      in nanoseconds
+     */
+    public void ack(int executor, long sequence, long rtt) {
+        append(executor, sequence, executor, ACK, rtt);
+    }
+
+    /**
+     * @param executor  the subscriber
+     * @param publisher the publisher of the message
+     * @param sequence  the sequence number of the message
+     * @param latency   the end-to-end latency in nanoseconds
+     */
+    public void receive(int executor, int publisher, long sequence, long latency) {
+        append(executor, sequence, publisher, RECEIVE, latency);
+    }
+
+    private void append(int executor, long sequence, int peer, int type, long nanos) {
+        if (closed) return;
+        int micros = (int) Math.min(Integer.MAX_VALUE, Math.max(0, TimeUnit.NANOSECONDS.toMicros(nanos)));
+        try {
+            writer.get().append(System.nanoTime(), sequence, executor, peer, type, micros);
+        } catch (UncheckedIOException e) {
+            // late events of a closing client may find the tracer closed
+            if (!closed) throw e;
+        }
+    }
+
+    private TraceWriter newWriter() {
+        try {
+            TraceWriter traceWriter = new TraceWriter(directory.resolve(PREFIX + files.getAndIncrement() + SUFFIX));
+            synchronized (writers) {
+                writers.add(traceWriter);
+            }
+            return traceWriter;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Flushes the trace files. Events recorded from now on are dropped.
+     *
+     * @throws IOException
+     */
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        synchronized (writers) {
+            for (TraceWriter traceWriter : writers)
+                traceWriter.close();
+        }
+    }
+
+}
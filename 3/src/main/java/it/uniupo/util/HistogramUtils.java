@@ -0,0 +1,124 @@
+package it.uniupo.util;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.PackedHistogram;
+import org.HdrHistogram.Recorder;
+import org.HdrHistogram.SynchronizedHistogram;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.DataFormatException;
+
+/**
+ * A class to create and read the latency histograms shared by executors and reports.
+ * <p>
+ * Values are recorded in microseconds up to one hour with two significant digits, so every histogram has a fixed
+ * footprint (a few tens of KiB) whatever the number of recorded messages and histograms can be merged with
+ * {@link Histogram#add(org.HdrHistogram.AbstractHistogram)}. The compact ones, kept for every client, store only the
+ * buckets they hit, so they take a few hundred bytes for a typical latency and grow only with its spread.
+ *
+ * @author Lorenzo Ferron
+ * @version 2026.10.18
+ */
+public class HistogramUtils {
+
+    public static final long HIGHEST_TRACKABLE_VALUE = TimeUnit.HOURS.toMicros(1);
+    public static final int SIGNIFICANT_DIGITS = 2;
+
+    public static final double[] PERCENTILES = {50, 90, 99, 99.9};
+
+    private HistogramUtils() {
+        // Empty body...
+    }
+
+    public static Histogram create() {
+        return new Histogram(HIGHEST_TRACKABLE_VALUE, SIGNIFICANT_DIGITS);
+    }
+
+    /**
+     * @return a histogram whose footprint grows with the buckets it hits, slower to record into
+     */
+    public static Histogram createCompact() {
+        return new PackedHistogram(HIGHEST_TRACKABLE_VALUE, SIGNIFICANT_DIGITS);
+    }
+
+    /**
+     * @return a histogram many threads can record into at once
+     */
+    public static Histogram createSynchronized() {
+        return new SynchronizedHistogram(HIGHEST_TRACKABLE_VALUE, SIGNIFICANT_DIGITS);
+    }
+
+    /**
+     * @param histogram
+     * @return the histogram in the compressed HdrHistogram encoding, a few hundred bytes for a typical latency
+     */
+    public static byte[] encode(Histogram histogram) {
+        ByteBuffer buffer = ByteBuffer.allocate(histogram.getNeededByteBufferCapacity());
+        int length = histogram.encodeIntoCompressedByteBuffer(buffer);
+        byte[] bytes = new byte[length];
+        buffer.flip();
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    /**
+     * @param bytes a histogram returned by {@link #encode(Histogram)}
+     * @return the histogram
+     * @throws DataFormatException if the bytes are not a compressed histogram
+     */
+    public static Histogram decode(byte[] bytes) throws DataFormatException {
+        return Histogram.decodeFromCompressedByteBuffer(ByteBuffer.wrap(bytes), 0);
+    }
+
+    /**
+     * @return a recorder whose compact interval histograms can be read while any number of threads record, lock-free
+     * @see #createCompact()
+     */
+    public static Recorder createRecorder() {
+        // packed recorders resize themselves: the values are clamped to the trackable range when recorded
+        return new Recorder(SIGNIFICANT_DIGITS, true);
+    }
+
+    /**
+     * Records a latency, clamping it to the trackable range.
+     *
+     * @param histogram the target histogram
+     * @param nanos     the latency in nanoseconds
+     */
+    public static void recordNanos(Histogram histogram, long nanos) {
+        histogram.recordValue(toMicros(nanos));
+    }
+
+    /**
+     * Records a latency, clamping it to the trackable range.
+     *
+     * @param recorder the target recorder
+     * @param nanos    the latency in nanoseconds
+     */
+    public static void recordNanos(Recorder recorder, long nanos) {
+        recorder.recordValue(toMicros(nanos));
+    }
+
+    private static long toMicros(long nanos) {
+        return Math.max(0, Math.min(TimeUnit.NANOSECONDS.toMicros(nanos), HIGHEST_TRACKABLE_VALUE));
+    }
+
+    /**
+     * @param histogram  a latency histogram
+     * @param percentile the percentile, e.g. 99.9
+     * @return the value at the given percentile in milliseconds
+     */
+    public static double percentileMillis(Histogram histogram, double percentile) {
+        return histogram.getValueAtPercentile(percentile) / 1000.0;
+    }
+
+    public static double maxMillis(Histogram histogram) {
+        return histogram.getMaxValue() / 1000.0;
+    }
+
+    public static double meanMillis(Histogram histogram) {
+        return histogram.getTotalCount() == 0 ? 0 : histogram.getMean() / 1000;
+    }
+
+}
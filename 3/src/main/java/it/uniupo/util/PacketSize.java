@@ -0,0 +1,49 @@
+package it.uniupo.util;
+
+/**
+ * The size on the wire of the MQTT packets publishers send, to compare the overhead of the protocol versions.
+ *
+ * @author Lorenzo Ferron
+ * @version 2026.10.18
+ */
+public class PacketSize {
+
+    /**
+     * Size of a topic alias property: identifier and two-byte value
+     */
+    public static final int TOPIC_ALIAS = 3;
+
+    private PacketSize() {
+        // Utility class
+    }
+
+    /**
+     * @param topic   the length of the topic name in bytes
+     * @param qos     the quality of service
+     * @param payload the length of the payload
+     * @return the size of an MQTT 3.1.1 PUBLISH packet
+     */
+    public static int v3Publish(int topic, int qos, int payload) {
+        return packet(2 + topic + (qos > 0 ? 2 : 0) + payload);
+    }
+
+    /**
+     * @param topic      the length of the topic name in bytes, 0 when it is replaced by an alias
+     * @param qos        the quality of service
+     * @param properties the length of the properties
+     * @param payload    the length of the payload
+     * @return the size of an MQTT 5 PUBLISH packet
+     */
+    public static int v5Publish(int topic, int qos, int properties, int payload) {
+        return packet(2 + topic + (qos > 0 ? 2 : 0) + variableByteInteger(properties) + properties + payload);
+    }
+
+    private static int packet(int remaining) {
+        return 1 + variableByteInteger(remaining) + remaining;
+    }
+
+    private static int variableByteInteger(int value) {
+        return value < 128 ? 1 : value < 16384 ? 2 : value < 2097152 ? 3 : 4;
+    }
+
+}
@@ -0,0 +1,227 @@
+package it.uniupo.util;
+
+import it.uniupo.descriptors.PayloadSize;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * An immutable pool of message payloads shared by the publishers of a config.
+ * <p>
+ * The pool is generated once at startup: a sequence of sizes drawn from the configured distribution and a single body
+ * long enough for the largest of them, filled with the repeated user payload. Publishers walk the sequence, so the hot
+ * loop neither draws random numbers nor encodes strings. Paho sends whole arrays, so a message needs a buffer of its
+ * exact size: publishers {@link #take(int) take} one from a free list per size and {@link #release(byte[]) give it
+ * back} once acknowledged. Once every size was in flight as many times as it can be at once, publishing allocates
+ * nothing whatever the distribution, and the buffers held by the pool are about the bytes in flight plus one per size.
+ * Sizes include the {@link ProbeCodec probe header} and are never smaller than it.
+ *
+ * @author Lorenzo Ferron
+ * @version 2026.10.18
+ */
+public class PayloadPool {
+
+    /**
+     * Number of sizes drawn from a variable distribution
+     */
+    public static final int SIZES = 4096;
+
+    private final byte[] body;
+    private final int[] sizes;
+    // the distinct sizes, ascending, and the free buffers of each of them
+    private final int[] distinct;
+    private final Free[] free;
+
+    private PayloadPool(byte[] body, int[] sizes) {
+        this.body = body;
+        this.sizes = sizes;
+        this.distinct = Arrays.stream(sizes).distinct().sorted().toArray();
+        this.free = new Free[distinct.length];
+        for (int i = 0; i < free.length; i++)
+            free[i] = new Free();
+    }
+
+    /**
+     * @param payload the user payload the bodies are filled with
+     * @return a pool of messages as long as the payload plus the header, as publishers always did
+     */
+    public static PayloadPool of(String payload) {
+        byte[] bytes = payload.getBytes(StandardCharsets.UTF_8);
+        return new PayloadPool(bytes, new int[]{ProbeCodec.HEADER_SIZE + bytes.length});
+    }
+
+    /**
+     * @param payload      the user payload the bodies are filled with
+     * @param distribution the distribution of the sizes
+     * @param seed         the seed of the draws, so that runs of the same environment send the same sizes
+     * @return the pool
+     * @throws IOException              if the captured histogram cannot be read
+     * @throws IllegalArgumentException if the distribution is not valid
+     */
+    public static PayloadPool of(String payload, PayloadSize distribution, long seed) throws IOException {
+        if (distribution == null) return of(payload);
+        Random random = new Random(seed);
+        int[] sizes;
+        switch (distribution.getType()) {
+            case FIXED:
+                sizes = new int[]{distribution.getSize()};
+                break;
+            case UNIFORM:
+                if (distribution.getMin() > distribution.getMax())
+                    throw new IllegalArgumentException("Payload size min " + distribution.getMin() + " is greater than max " + distribution.getMax());
+                sizes = new int[SIZES];
+                for (int i = 0; i < sizes.length; i++)
+                    sizes[i] = distribution.getMin() + random.nextInt(distribution.getMax() - distribution.getMin() + 1);
+                break;
+            case WEIGHTED:
+                if (distribution.getBuckets() == null || distribution.getBuckets().isEmpty())
+                    throw new IllegalArgumentException("Weighted payload size without buckets");
+                sizes = draw(distribution.getBuckets(), random);
+                break;
+            case HISTOGRAM:
+                if (distribution.getFile() == null)
+                    throw new IllegalArgumentException("Payload size histogram without file");
+                sizes = draw(readHistogram(distribution.getFile()), random);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown payload size distribution " + distribution.getType());
+        }
+        for (int i = 0; i < sizes.length; i++)
+            sizes[i] = Math.max(ProbeCodec.HEADER_SIZE, sizes[i]);
+        return new PayloadPool(fill(payload.getBytes(StandardCharsets.UTF_8),
+                Arrays.stream(sizes).max().orElse(ProbeCodec.HEADER_SIZE) - ProbeCodec.HEADER_SIZE), sizes);
+    }
+
+    /**
+     * Spreads the sizes over the pool in exact proportion to the weights, then shuffles them.
+     */
+    private static int[] draw(List<PayloadSize.Bucket> buckets, Random random) {
+        double total = buckets.stream().mapToDouble(PayloadSize.Bucket::getWeight).sum();
+        if (!(total > 0)) throw new IllegalArgumentException("Payload size weights must sum to a positive number");
+        int[] sizes = new int[SIZES];
+        int i = 0;
+        double cumulated = 0;
+        for (PayloadSize.Bucket bucket : buckets) {
+            cumulated += bucket.getWeight();
+            for (int to = (int) Math.round(cumulated / total * SIZES); i < to; i++)
+                sizes[i] = bucket.getSize();
+        }
+        for (int j = sizes.length - 1; j > 0; j--) {
+            int k = random.nextInt(j + 1);
+            int size = sizes[j];
+            sizes[j] = sizes[k];
+            sizes[k] = size;
+        }
+        return sizes;
+    }
+
+    /**
+     * @param file a captured histogram, one {@code size,count} line per bucket, {@code #} starting a comment
+     * @return the buckets
+     * @throws IOException
+     */
+    private static List<PayloadSize.Bucket> readHistogram(String file) throws IOException {
+        List<PayloadSize.Bucket> buckets = new ArrayList<>();
+        try (BufferedReader br = Files.newBufferedReader(Paths.get(file))) {
+            String line;
+            while ((line = br.readLine()) != null) {
+                line = line.replaceFirst("#.*", "").trim();
+                if (line.isEmpty()) continue;
+                String[] fields = line.split("[,;\\s]+");
+                try {
+                    buckets.add(new PayloadSize.Bucket(Integer.parseInt(fields[0]), Double.parseDouble(fields[1])));
+                } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+                    throw new IOException("Invalid line in payload size histogram " + file + ": " + line);
+                }
+            }
+        }
+        if (buckets.isEmpty()) throw new IOException("Empty payload size histogram " + file);
+        return buckets;
+    }
+
+    private static byte[] fill(byte[] pattern, int length) {
+        byte[] body = new byte[length];
+        if (pattern.length > 0)
+            for (int i = 0; i < length; i += pattern.length)
+                System.arraycopy(pattern, 0, body, i, Math.min(pattern.length, length - i));
+        return body;
+    }
+
+    /**
+     * @return the number of sizes, publishers walk them modulo this length
+     */
+    public int length() {
+        return sizes.length;
+    }
+
+    /**
+     * @param index the index of the message
+     * @return the size of the message, header included
+     */
+    public int size(int index) {
+        return sizes[index];
+    }
+
+    /**
+     * @param size a size returned by {@link #size(int)}
+     * @return a new message buffer of that size holding an empty header and the body
+     */
+    public byte[] allocate(int size) {
+        return ProbeCodec.allocate(body, size - ProbeCodec.HEADER_SIZE);
+    }
+
+    /**
+     * @param size a size returned by {@link #size(int)}
+     * @return a message buffer of that size holding the body, given back by a publisher or a new one, whose header is
+     * to be encoded
+     */
+    public byte[] take(int size) {
+        int i = Arrays.binarySearch(distinct, size);
+        byte[] buffer = i < 0 ? null : free[i].take();
+        return buffer == null ? allocate(size) : buffer;
+    }
+
+    /**
+     * @param buffer a buffer returned by {@link #take(int)} that is no longer in flight
+     */
+    public void release(byte[] buffer) {
+        int i = Arrays.binarySearch(distinct, buffer.length);
+        if (i >= 0) free[i].put(buffer);
+    }
+
+    /**
+     * @return the mean size of the messages, header included
+     */
+    public double getMeanSize() {
+        return Arrays.stream(sizes).average().orElse(0);
+    }
+
+    /**
+     * The free buffers of a size, shared by the publishers of the config.
+     */
+    private static class Free {
+
+        private byte[][] buffers = new byte[4][];
+        private int count;
+
+        synchronized byte[] take() {
+            if (count == 0) return null;
+            byte[] buffer = buffers[--count];
+            buffers[count] = null;
+            return buffer;
+        }
+
+        synchronized void put(byte[] buffer) {
+            if (count == buffers.length) buffers = Arrays.copyOf(buffers, count * 2);
+            buffers[count++] = buffer;
+        }
+    }
+
+}
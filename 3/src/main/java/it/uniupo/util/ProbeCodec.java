@@ -0,0 +1,114 @@
+package it.uniupo.util;
+
+/**
+ * A fixed-layout binary header prepended to every benchmark message.
+ * <p>
+ * The layout (big-endian) is: magic byte, flags (1 byte), publisher id (4 bytes), sequence number (8 bytes) and send
+ * time as returned by {@link System#nanoTime()} (8 bytes), followed by the user payload. The buffer is allocated once per
+ * publisher, so encoding a message only overwrites the header fields and decoding is a read at a fixed offset.
+ *
+ * @author Lorenzo Ferron
+ * @version 2026.10.18
+ */
+public class ProbeCodec {
+
+    public static final byte MAGIC = 0x50;
+
+    /**
+     * Set on the messages the publisher counts, i.e. sent in the measurement window
+     */
+    public static final byte MEASURED = 1;
+
+    public static final int FLAGS_OFFSET = 1;
+    public static final int PUBLISHER_ID_OFFSET = FLAGS_OFFSET + 1;
+    public static final int SEQUENCE_OFFSET = PUBLISHER_ID_OFFSET + Integer.BYTES;
+    public static final int SEND_TIME_OFFSET = SEQUENCE_OFFSET + Long.BYTES;
+    public static final int HEADER_SIZE = SEND_TIME_OFFSET + Long.BYTES;
+
+    private ProbeCodec() {
+        // Empty body...
+    }
+
+    /**
+     * Allocates a buffer holding an empty header followed by the given body.
+     *
+     * @param body the user payload
+     * @return a buffer ready for {@link #encode(byte[], int, long, long, boolean)}
+     */
+    public static byte[] allocate(byte[] body) {
+        return allocate(body, body.length);
+    }
+
+    /**
+     * Allocates a buffer holding an empty header followed by a prefix of the given body.
+     *
+     * @param body   the user payload
+     * @param length the length of the prefix
+     * @return a buffer ready for {@link #encode(byte[], int, long, long, boolean)}
+     */
+    public static byte[] allocate(byte[] body, int length) {
+        byte[] buffer = new byte[HEADER_SIZE + length];
+        buffer[0] = MAGIC;
+        System.arraycopy(body, 0, buffer, HEADER_SIZE, length);
+        return buffer;
+    }
+
+    /**
+     * @param buffer      a buffer returned by {@link #allocate(byte[])}
+     * @param publisherId
+     * @param sequence
+     * @param sendTime
+     * @param measured    whether the publisher counts the message, so subscribers count it too whatever their clock
+     */
+    public static void encode(byte[] buffer, int publisherId, long sequence, long sendTime, boolean measured) {
+        buffer[FLAGS_OFFSET] = measured ? MEASURED : 0;
+        putInt(buffer, PUBLISHER_ID_OFFSET, publisherId);
+        putLong(buffer, SEQUENCE_OFFSET, sequence);
+        putLong(buffer, SEND_TIME_OFFSET, sendTime);
+    }
+
+    public static boolean isProbe(byte[] buffer) {
+        return buffer.length >= HEADER_SIZE && buffer[0] == MAGIC;
+    }
+
+    public static boolean isMeasured(byte[] buffer) {
+        return (buffer[FLAGS_OFFSET] & MEASURED) != 0;
+    }
+
+    public static int getPublisherId(byte[] buffer) {
+        return getInt(buffer, PUBLISHER_ID_OFFSET);
+    }
+
+    public static long getSequence(byte[] buffer) {
+        return getLong(buffer, SEQUENCE_OFFSET);
+    }
+
+    public static long getSendTime(byte[] buffer) {
+        return getLong(buffer, SEND_TIME_OFFSET);
+    }
+
+    private static void putInt(byte[] buffer, int offset, int value) {
+        for (int i = Integer.BYTES - 1; i >= 0; i--, value >>>= 8)
+            buffer[offset + i] = (byte) value;
+    }
+
+    private static void putLong(byte[] buffer, int offset, long value) {
+        for (int i = Long.BYTES - 1; i >= 0; i--, value >>>= 8)
+            buffer[offset + i] = (byte) value;
+    }
+
+    private static int getInt(byte[] buffer, int offset) {
+        int value = 0;
+        for (int i = 0; i < Integer.BYTES; i++)
+            value = value << 8 | buffer[offset + i] & 0xFF;
+        return value;
+    }
+
+    private static long getLong(byte[] buffer, int offset) {
+        long value = 0;
+        for (int i = 0; i < Long.BYTES; i++)
+            value = value << 8 | buffer[offset + i] & 0xFF;
+        return value;
+    }
+
+}
@@ -0,0 +1,51 @@
+package it.uniupo.util;
+
+/**
+ * A class to build and parse shared subscription filters, as in {@code $share/GROUP/TOPIC}: the broker delivers each
+ * message matching TOPIC to only one of the subscribers of the group.
+ *
+ * @author Lorenzo Ferron
+ * @version 2026.10.18
+ */
+public class SharedSubscription {
+
+    public static final String PREFIX = "$share/";
+
+    private SharedSubscription() {
+        // Utility class
+    }
+
+    /**
+     * @param group the share group, {@code null} for a plain subscription
+     * @param topic the topic filter
+     * @return the filter to subscribe to
+     */
+    public static String filter(String group, String topic) {
+        return group == null ? topic : PREFIX + group + "/" + topic;
+    }
+
+    /**
+     * @param filter a subscription filter
+     * @return whether it is a shared subscription
+     */
+    public static boolean isShared(String filter) {
+        return filter.startsWith(PREFIX) && filter.indexOf('/', PREFIX.length()) > 0;
+    }
+
+    /**
+     * @param filter a subscription filter
+     * @return the share group, {@code null} for a plain subscription
+     */
+    public static String getGroup(String filter) {
+        return isShared(filter) ? filter.substring(PREFIX.length(), filter.indexOf('/', PREFIX.length())) : null;
+    }
+
+    /**
+     * @param filter a subscription filter
+     * @return the topic filter messages are matched against, without the share group
+     */
+    public static String getTopic(String filter) {
+        return isShared(filter) ? filter.substring(filter.indexOf('/', PREFIX.length()) + 1) : filter;
+    }
+
+}